@@ -0,0 +1,83 @@
+plugins {
+    java
+    id("org.openjfx.javafxplugin")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+repositories {
+    mavenCentral()
+}
+
+val jmhVersion = "1.37"
+
+// Проверка ячеек таблицы маршрутов: отдельный набор исходников с JavaFX и Monocle.
+// Классы лежат в пакете ui.main, чтобы использовать ячейки MainView напрямую
+val ui by sourceSets.creating
+
+javafx {
+    version = "21.0.1"
+    modules = listOf("javafx.controls")
+    configuration = "uiImplementation"
+}
+
+dependencies {
+    // Бенчмарки не трогают JavaFX: слой данных и коллекции не зависят от UI
+    implementation(project(":")) {
+        exclude(group = "org.openjfx")
+    }
+    implementation("org.openjdk.jmh:jmh-core:$jmhVersion")
+    annotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+
+    "uiImplementation"(project(":"))
+    "uiRuntimeOnly"("org.testfx:openjfx-monocle:21.0.2")
+}
+
+// Результаты в JSON по версии приложения, чтобы сравнивать выпуски между собой.
+// Фильтр бенчмарков и параметры JMH: ./gradlew :benchmarks:jmh -Pjmh="RouteList -p size=1000"
+val jmh by tasks.registering(JavaExec::class) {
+    group = "benchmark"
+    description = "Runs JMH benchmarks and writes JSON results to build/results/jmh."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val results = layout.buildDirectory.file("results/jmh/catalog-${rootProject.version}.json")
+    doFirst {
+        results.get().asFile.parentFile.mkdirs()
+    }
+    args("-rf", "json", "-rff", results.get().asFile.absolutePath)
+    (project.findProperty("jmh") as String?)?.let { args(it.split(" ").filter(String::isNotBlank)) }
+}
+
+// Синтетический каталог: ./gradlew :benchmarks:generateCatalog -Pcatalog="db catalog.db 1000000"
+val generateCatalog by tasks.registering(JavaExec::class) {
+    group = "benchmark"
+    description = "Writes a seeded synthetic catalog into a SQLite database or a CSV file."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("su.pank.transport.benchmarks.CatalogGenerator")
+    workingDir = rootProject.projectDir
+    (project.findProperty("catalog") as String?)?.let { args(it.split(" ").filter(String::isNotBlank)) }
+}
+
+// Прокрутка таблицы без экрана: ./gradlew :benchmarks:tableScroll [-PtableRows=50000]
+val tableScroll by tasks.registering(JavaExec::class) {
+    group = "benchmark"
+    description = "Scrolls the route table headlessly with Monocle and fails if cells are not reused."
+    classpath = ui.runtimeClasspath
+    mainClass.set("su.pank.transport.ui.main.TableScrollCheck")
+    jvmArgs("-Dglass.platform=Monocle", "-Dmonocle.platform=Headless", "-Dprism.order=sw")
+    (project.findProperty("tableRows") as String?)?.let { args(it) }
+}
+
+// Память на строку таблицы до и после неизменяемых моделей: ./gradlew :benchmarks:rowHeap [-PheapRows=200000]
+val rowHeap by tasks.registering(JavaExec::class) {
+    group = "benchmark"
+    description = "Measures retained heap per route table row for the old property-based models and the current ones."
+    classpath = ui.runtimeClasspath
+    mainClass.set("su.pank.transport.ui.main.RowHeapCheck")
+    // Последовательный сборщик: занятая куча после System.gc() без фоновых фаз
+    jvmArgs("-XX:+UseSerialGC")
+    (project.findProperty("heapRows") as String?)?.let { args(it) }
+}
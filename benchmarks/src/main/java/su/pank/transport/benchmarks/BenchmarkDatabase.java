@@ -0,0 +1,92 @@
+package su.pank.transport.benchmarks;
+
+import su.pank.transport.data.ConnectionProvider;
+import su.pank.transport.data.DatabaseConfig;
+import su.pank.transport.data.PooledConnection;
+import su.pank.transport.data.migration.SchemaMigrator;
+import su.pank.transport.data.repository.CategoryRepository;
+import su.pank.transport.data.repository.DepotRegistry;
+import su.pank.transport.data.repository.RoutePointRepository;
+import su.pank.transport.data.repository.RouteRepository;
+import su.pank.transport.domain.RouteNumberIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+
+/**
+ * Временная база для бенчмарков: схема через SchemaMigrator и каталог из CatalogGenerator.
+ * Номера маршрутов ограничены 1..999, поэтому маршрутов не больше 998: номер 999 остаётся
+ * свободным для бенчмарков записи
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+    static final int FREE_ROUTE_NUMBER = RouteNumberIndex.MAX_ROUTE_NUMBER;
+
+    private final Path dir;
+    final CatalogGenerator generator;
+    final ConnectionProvider provider;
+    final CategoryRepository categories;
+    final RoutePointRepository points;
+    final RouteRepository routes;
+    final int routeCount;
+
+    private BenchmarkDatabase(Path dir, int pointCount) {
+        this.dir = dir;
+        this.generator = new CatalogGenerator(CatalogGenerator.DEFAULT_SEED, pointCount);
+        this.provider = new ConnectionProvider(new DatabaseConfig("jdbc:sqlite:" + dir.resolve("bench.db")));
+        // Свой реестр депо: общий синглтон копил бы точки всех прогонов
+        DepotRegistry registry = new DepotRegistry();
+        this.categories = new CategoryRepository(provider);
+        this.points = new RoutePointRepository(provider, registry);
+        this.routes = new RouteRepository(provider, categories, registry);
+        this.routeCount = Math.min(pointCount, FREE_ROUTE_NUMBER - 1);
+    }
+
+    /**
+     * @param pointCount число депо; маршрутов столько же, но не больше 998
+     */
+    static BenchmarkDatabase create(int pointCount) throws IOException, SQLException {
+        BenchmarkDatabase db = new BenchmarkDatabase(Files.createTempDirectory("catalog-bench"), pointCount);
+        try {
+            new SchemaMigrator(db.provider).migrate();
+            db.generator.writeDatabase(db.provider, db.categories.getDictionary(), db.routeCount);
+            return db;
+        } catch (SQLException | RuntimeException e) {
+            db.close();
+            throw e;
+        }
+    }
+
+    /**
+     * CSV того же каталога: записи ссылаются на депо, которые уже есть в базе
+     */
+    Path writeCsv(String name, int records) throws IOException {
+        Path file = dir.resolve(name);
+        generator.writeCsv(file, records, categories.getDictionary());
+        return file;
+    }
+
+    Path resolve(String name) {
+        return dir.resolve(name);
+    }
+
+    void deleteAllRoutes() throws SQLException {
+        try (PooledConnection conn = provider.acquire();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM routes");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        provider.close();
+        try (var paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package su.pank.transport.benchmarks;
+
+import su.pank.transport.data.ConnectionProvider;
+import su.pank.transport.data.DatabaseConfig;
+import su.pank.transport.data.PooledConnection;
+import su.pank.transport.data.UnitOfWork;
+import su.pank.transport.data.csv.CsvWriter;
+import su.pank.transport.data.csv.RouteCsvExporter;
+import su.pank.transport.data.migration.SchemaMigrator;
+import su.pank.transport.data.models.Category;
+import su.pank.transport.data.models.Route;
+import su.pank.transport.data.models.RoutePoint;
+import su.pank.transport.data.models.RouteType;
+import su.pank.transport.data.repository.CategoryDictionary;
+import su.pank.transport.data.repository.CategoryRepository;
+import su.pank.transport.domain.RouteNumberIndex;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Random;
+
+/**
+ * Детерминированный синтетический каталог: при одном seed и числе депо данные всегда одинаковы.
+ * Концы маршрутов выбираются по закону Ципфа, поэтому несколько узловых депо обслуживают
+ * большую часть маршрутов; населённые пункты и районы тоже неравномерны.
+ * Пишет в схему SQLite пакетными вставками или в CSV в формате импорта
+ */
+public final class CatalogGenerator {
+    public static final long DEFAULT_SEED = 42;
+    // Показатель распределения: на миллионе депо самое крупное - конец ~10% маршрутов, первые 10 - ~30%
+    private static final double ENDPOINT_SKEW = 1.07;
+    private static final double LOCALITY_SKEW = 1.2;
+    private static final int LOCALITIES = 1_000;
+    private static final int DISTRICTS_PER_LOCALITY = 30;
+    // Доля маршрутов с первой категорией, у следующих доли меньше
+    private static final double FIRST_CATEGORY_SHARE = 0.3;
+    private static final int BATCH_SIZE = 10_000;
+
+    private static final String[] LOCALITY_NAMES = {
+            "Москва", "Санкт-Петербург", "Новосибирск", "Екатеринбург", "Казань", "Нижний Новгород",
+            "Челябинск", "Самара", "Омск", "Ростов-на-Дону", "Уфа", "Красноярск", "Воронеж", "Пермь",
+            "Волгоград", "Краснодар", "Саратов", "Тюмень", "Тольятти", "Ижевск"
+    };
+    private static final String[] POINT_KINDS = {
+            "Депо", "Автовокзал", "Конечная станция", "Автопарк", "Разворотное кольцо"
+    };
+
+    private final long seed;
+    private final int pointCount;
+    private final int[] localityOf;
+    private final int[] districtOf;
+    // Ранг депо в распределении Ципфа -> индекс депо: узловые депо разбросаны по id
+    private final int[] pointByRank;
+    private final ZipfDistribution endpoints;
+
+    public CatalogGenerator(long seed, int pointCount) {
+        this.seed = seed;
+        this.pointCount = pointCount;
+        this.localityOf = new int[pointCount];
+        this.districtOf = new int[pointCount];
+        Random random = new Random(seed);
+        ZipfDistribution localities = new ZipfDistribution(LOCALITIES, LOCALITY_SKEW);
+        ZipfDistribution districts = new ZipfDistribution(DISTRICTS_PER_LOCALITY, LOCALITY_SKEW);
+        for (int i = 0; i < pointCount; i++) {
+            localityOf[i] = localities.sample(random);
+            districtOf[i] = districts.sample(random);
+        }
+        this.pointByRank = new int[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            pointByRank[i] = i;
+        }
+        for (int i = pointCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = pointByRank[i];
+            pointByRank[i] = pointByRank[j];
+            pointByRank[j] = swap;
+        }
+        this.endpoints = new ZipfDistribution(pointCount, ENDPOINT_SKEW);
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public String locality(int index) {
+        int locality = localityOf[index];
+        return locality < LOCALITY_NAMES.length
+                ? LOCALITY_NAMES[locality]
+                : "Посёлок " + (locality - LOCALITY_NAMES.length + 1);
+    }
+
+    public String district(int index) {
+        return "Район " + (districtOf[index] + 1);
+    }
+
+    // Описание уникально: номер депо входит в него
+    public String description(int index) {
+        return POINT_KINDS[index % POINT_KINDS.length] + " №" + (index + 1);
+    }
+
+    /**
+     * Депо с индексом index и id index + 1, как в пустой базе без исходных депо
+     */
+    public RoutePoint point(int index) {
+        return new RoutePoint(index + 1, locality(index), district(index), description(index));
+    }
+
+    /**
+     * Маршруты в памяти для коллекций: номера повторяются, концы ссылаются на общие экземпляры депо
+     * @param categoryCount число категорий, биты 0..categoryCount-1
+     */
+    public Route[] routes(int count, int categoryCount) {
+        RoutePoint[] points = new RoutePoint[pointCount];
+        int[] categoryMasks = new int[categoryCount];
+        for (int bit = 0; bit < categoryCount; bit++) {
+            categoryMasks[bit] = 1 << bit;
+        }
+        Random random = new Random(seed + 1);
+        Route[] routes = new Route[count];
+        for (int i = 0; i < count; i++) {
+            int start = nextEndpoint(random);
+            int end = nextEndpoint(random);
+            if (points[start] == null) points[start] = point(start);
+            if (points[end] == null) points[end] = point(end);
+            routes[i] = new Route(i + 1, 1 + random.nextInt(RouteNumberIndex.MAX_ROUTE_NUMBER),
+                    points[start], points[end], nextMask(random, categoryMasks));
+        }
+        return routes;
+    }
+
+    /**
+     * Запись депо и маршрутов с номерами 1..routeCount в одной транзакции.
+     * Таблица маршрутов должна быть пустой: номера маршрутов уникальны
+     * @param routeCount не больше 999
+     * @return id первого сгенерированного депо, депо с индексом i получает id на i больше
+     */
+    public int writeDatabase(ConnectionProvider provider, CategoryDictionary categories, int routeCount)
+            throws SQLException {
+        if (routeCount > RouteNumberIndex.MAX_ROUTE_NUMBER) {
+            throw new IllegalArgumentException("At most " + RouteNumberIndex.MAX_ROUTE_NUMBER + " routes fit the schema");
+        }
+        try (UnitOfWork work = provider.beginWork()) {
+            PooledConnection conn = work.getConnection();
+            PreparedStatement insertPoint = conn.prepare(
+                    "INSERT INTO route_points (locality, district, description) VALUES (?, ?, ?)");
+            for (int i = 0; i < pointCount; i++) {
+                insertPoint.setString(1, locality(i));
+                insertPoint.setString(2, district(i));
+                insertPoint.setString(3, description(i));
+                insertPoint.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insertPoint.executeBatch();
+                }
+            }
+            insertPoint.executeBatch();
+
+            int firstPointId;
+            try (ResultSet rs = conn.prepare("SELECT MAX(id) FROM route_points").executeQuery()) {
+                firstPointId = (rs.next() ? rs.getInt(1) : pointCount) - pointCount + 1;
+            }
+
+            // Номера вставляются вразброс, чтобы порядок id не совпадал с порядком номеров
+            Random random = new Random(seed + 2);
+            int[] numbers = shuffledNumbers(random);
+            int[] categoryMasks = masksOf(categories);
+            PreparedStatement insertRoute = conn.prepare(
+                    "INSERT INTO routes (route_number, start_point_id, end_point_id, category_mask) VALUES (?, ?, ?, ?)");
+            for (int i = 0; i < routeCount; i++) {
+                insertRoute.setInt(1, numbers[i]);
+                insertRoute.setInt(2, firstPointId + nextEndpoint(random));
+                insertRoute.setInt(3, firstPointId + nextEndpoint(random));
+                insertRoute.setInt(4, nextMask(random, categoryMasks));
+                insertRoute.addBatch();
+            }
+            insertRoute.executeBatch();
+            work.commit();
+            return firstPointId;
+        }
+    }
+
+    /**
+     * CSV в формате экспорта. Номера идут кругами по 999 в перемешанном порядке: при импорте
+     * первые 999 записей добавляются, остальные разбираются и пропускаются как повторы
+     */
+    public void writeCsv(Path file, int records, CategoryDictionary categories) throws IOException {
+        Random random = new Random(seed + 3);
+        int[] numbers = shuffledNumbers(random);
+        int[] categoryMasks = masksOf(categories);
+        try (CsvWriter writer = new CsvWriter(FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+            writer.append(RouteCsvExporter.HEADER).endRecord();
+            for (int i = 0; i < records; i++) {
+                int number = numbers[i % numbers.length];
+                writer.appendInt(i + 1).append(',').appendInt(number).append(',');
+                appendPoint(writer, nextEndpoint(random));
+                writer.append(',');
+                appendPoint(writer, nextEndpoint(random));
+                writer.append(",\"").appendEscaped(categories.format(nextMask(random, categoryMasks), ","))
+                        .append("\",\"").append(RouteType.fromRouteNumber(number).getDisplayName()).append('"')
+                        .endRecord();
+            }
+        }
+    }
+
+    private void appendPoint(CsvWriter writer, int index) throws IOException {
+        writer.append('"').appendEscaped(description(index))
+                .append(" (").appendEscaped(locality(index))
+                .append(", ").appendEscaped(district(index))
+                .append(")\"");
+    }
+
+    private int nextEndpoint(Random random) {
+        return pointByRank[endpoints.sample(random)];
+    }
+
+    private static int nextMask(Random random, int[] categoryMasks) {
+        int mask = 0;
+        for (int i = 0; i < categoryMasks.length; i++) {
+            if (random.nextDouble() < FIRST_CATEGORY_SHARE / (i + 1)) {
+                mask |= categoryMasks[i];
+            }
+        }
+        return mask;
+    }
+
+    private static int[] masksOf(CategoryDictionary categories) {
+        Category[] all = categories.toArray();
+        int[] masks = new int[all.length];
+        for (int i = 0; i < all.length; i++) {
+            masks[i] = all[i].getMask();
+        }
+        return masks;
+    }
+
+    private static int[] shuffledNumbers(Random random) {
+        int[] numbers = new int[RouteNumberIndex.MAX_ROUTE_NUMBER];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = i + 1;
+        }
+        for (int i = numbers.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = numbers[i];
+            numbers[i] = numbers[j];
+            numbers[j] = swap;
+        }
+        return numbers;
+    }
+
+    /**
+     * Генерация из командной строки (gradle :benchmarks:generateCatalog):
+     * db|csv путь [число депо] [seed]. В базу пишутся ещё 999 маршрутов, в CSV - по записи на депо
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || !(args[0].equals("db") || args[0].equals("csv"))) {
+            System.err.println("Использование: CatalogGenerator db|csv <путь> [число депо] [seed]");
+            System.exit(2);
+        }
+        Path path = Path.of(args[1]);
+        int points = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SEED;
+
+        long start = System.nanoTime();
+        CatalogGenerator generator = new CatalogGenerator(seed, points);
+        // Для CSV нужен только словарь категорий: он берётся из временной базы в памяти
+        DatabaseConfig config = args[0].equals("db")
+                ? new DatabaseConfig("jdbc:sqlite:" + path)
+                : new DatabaseConfig("jdbc:sqlite::memory:", 1, DatabaseConfig.DEFAULT_STATEMENT_CACHE_SIZE, null);
+        try (ConnectionProvider provider = new ConnectionProvider(config)) {
+            new SchemaMigrator(provider).migrate();
+            CategoryDictionary categories = new CategoryRepository(provider).getDictionary();
+            if (args[0].equals("db")) {
+                generator.writeDatabase(provider, categories, RouteNumberIndex.MAX_ROUTE_NUMBER);
+            } else {
+                generator.writeCsv(path, points, categories);
+            }
+        }
+        System.out.printf("Каталог на %d депо записан в %s за %d мс%n",
+                points, path, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,126 @@
+package su.pank.transport.benchmarks;
+
+import su.pank.transport.data.csv.CsvReader;
+import su.pank.transport.data.csv.ImportResult;
+import su.pank.transport.data.csv.RouteCsvExporter;
+import su.pank.transport.data.csv.RouteCsvImporter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор CSV, импорт и экспорт - то, что MainViewModel.importFromCSV/exportToCSV
+ * выполняют в фоновом потоке
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvBenchmark {
+    // Разбор импорта до CsvReader: split по запятым вне кавычек и снятие кавычек у каждого поля
+    private static final String CSV_SPLIT_REGEX = ",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)";
+
+    /**
+     * База с rows депо и CSV на rows записей, ссылающихся на эти депо
+     */
+    @State(Scope.Benchmark)
+    public static class Catalog {
+        @Param({"1000", "100000", "1000000"})
+        int rows;
+
+        BenchmarkDatabase db;
+        Path csv;
+        byte[] csvBytes;
+        File exportFile;
+
+        @Setup
+        public void setUp() throws IOException, SQLException {
+            db = BenchmarkDatabase.create(rows);
+            csv = db.writeCsv("routes.csv", rows);
+            csvBytes = Files.readAllBytes(csv);
+            exportFile = db.resolve("export.csv").toFile();
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            db.close();
+        }
+    }
+
+    /**
+     * Пустая таблица маршрутов перед каждым импортом, иначе все номера уже заняты
+     */
+    @State(Scope.Benchmark)
+    public static class EmptyRoutes {
+        @Setup(Level.Invocation)
+        public void setUp(Catalog catalog) throws SQLException {
+            catalog.db.deleteAllRoutes();
+        }
+    }
+
+    @Benchmark
+    public long splitLines(Catalog catalog, Blackhole bh) throws IOException {
+        try (CsvReader reader = new CsvReader(Channels.newChannel(new ByteArrayInputStream(catalog.csvBytes)))) {
+            while (reader.next()) {
+                bh.consume(reader.field(reader.fieldCount() - 1));
+            }
+            return reader.recordNumber();
+        }
+    }
+
+    /**
+     * Базовая линия для splitLines: те же байты построчно через BufferedReader
+     */
+    @Benchmark
+    public long regexSplit(Catalog catalog, Blackhole bh) throws IOException {
+        long records = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(catalog.csvBytes), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(CSV_SPLIT_REGEX, -1);
+                for (String part : parts) {
+                    bh.consume(part.replaceAll("^\"|\"$", "").trim());
+                }
+                records++;
+            }
+        }
+        return records;
+    }
+
+    @Benchmark
+    public int exportFile(Catalog catalog) throws IOException {
+        return new RouteCsvExporter(catalog.db.provider, catalog.db.categories).exportFile(catalog.exportFile);
+    }
+
+    @Benchmark
+    public ImportResult importFile(Catalog catalog, EmptyRoutes emptyRoutes) throws IOException {
+        return new RouteCsvImporter(catalog.db.provider, catalog.db.categories, catalog.db.points)
+                .importFile(catalog.csv.toFile());
+    }
+}
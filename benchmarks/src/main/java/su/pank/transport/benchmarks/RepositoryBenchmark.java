@@ -0,0 +1,117 @@
+package su.pank.transport.benchmarks;
+
+import su.pank.transport.data.models.Route;
+import su.pank.transport.data.models.RoutePoint;
+import su.pank.transport.domain.RouteLinkedList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запросы репозиториев к временной базе с rows депо и до 998 маршрутов.
+ * *NewConnection - тот же запрос, как до пула соединений: своё соединение и PreparedStatement
+ * на каждый вызов. Для вызовов в секунду: -Pjmh="RepositoryBenchmark.exists -bm thrpt -tu s"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int rows;
+
+    private BenchmarkDatabase db;
+    private RoutePoint existingPoint;
+    private RoutePoint missingPoint;
+    private Route template;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        db = BenchmarkDatabase.create(rows);
+        existingPoint = db.generator.point(rows / 2);
+        missingPoint = new RoutePoint(0, "Нет такого", "Нет такого", "Нет такого");
+        Route first = db.routes.getRoutesPage(0, 0, 1)[0];
+        template = new Route(0, BenchmarkDatabase.FREE_ROUTE_NUMBER, first.getStartPoint(), first.getEndPoint(),
+                first.getCategoryMask());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        db.close();
+    }
+
+    @Benchmark
+    public RouteLinkedList getAllRoutes() {
+        return db.routes.getAllRoutes();
+    }
+
+    @Benchmark
+    public Route[] getFirstRoutesPage() {
+        return db.routes.getRoutesPage(0, 0, 100);
+    }
+
+    @Benchmark
+    public RoutePoint[] getAllRoutePoints() {
+        return db.points.getAllRoutePoints();
+    }
+
+    @Benchmark
+    public boolean existsHit() {
+        return db.points.exists(existingPoint);
+    }
+
+    @Benchmark
+    public boolean existsMiss() {
+        return db.points.exists(missingPoint);
+    }
+
+    @Benchmark
+    public boolean existsHitNewConnection() throws SQLException {
+        return existsOnNewConnection(existingPoint);
+    }
+
+    @Benchmark
+    public boolean existsMissNewConnection() throws SQLException {
+        return existsOnNewConnection(missingPoint);
+    }
+
+    private boolean existsOnNewConnection(RoutePoint point) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM route_points WHERE locality = ? AND district = ? AND description = ?";
+        try (Connection conn = DriverManager.getConnection(db.provider.getConfig().getUrl());
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, point.getLocality());
+            pstmt.setString(2, point.getDistrict());
+            pstmt.setString(3, point.getDescription());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    // Вставка занимает единственный свободный номер, поэтому маршрут сразу удаляется
+    @Benchmark
+    public boolean addAndDeleteRoute() {
+        Route saved = db.routes.addRoute(template);
+        return db.routes.deleteRoute(saved.getId());
+    }
+}
@@ -0,0 +1,162 @@
+package su.pank.transport.benchmarks;
+
+import su.pank.transport.data.models.Route;
+import su.pank.transport.domain.RouteLinkedList;
+import su.pank.transport.domain.RouteNumberIndex;
+import su.pank.transport.domain.RouteSortKey;
+import su.pank.transport.domain.RouteSorter;
+import su.pank.transport.domain.SimpleLinkedList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции списков маршрутов в памяти, без базы. Маршруты из CatalogGenerator:
+ * концы маршрутов чаще попадают на узловые депо
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouteListBenchmark {
+    private static final int DEPOTS = 200;
+    private static final int CATEGORIES = 3;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    Route[] routes;
+    RouteLinkedList list;
+    int[] lookupNumbers;
+    private final RouteSorter.Criterion[] criteria = {
+            new RouteSorter.Criterion(RouteSortKey.TYPE, true),
+            RouteSorter.Criterion.ascending(RouteSortKey.START_POINT),
+            RouteSorter.Criterion.ascending(RouteSortKey.NUMBER)
+    };
+
+    @Setup
+    public void setUp() {
+        routes = new CatalogGenerator(CatalogGenerator.DEFAULT_SEED, DEPOTS).routes(size, CATEGORIES);
+        list = new RouteLinkedList();
+        for (Route route : routes) {
+            list.add(route);
+        }
+        Random random = new Random(3);
+        lookupNumbers = new int[1024];
+        for (int i = 0; i < lookupNumbers.length; i++) {
+            lookupNumbers[i] = 1 + random.nextInt(RouteNumberIndex.MAX_ROUTE_NUMBER);
+        }
+    }
+
+    @Benchmark
+    public SimpleLinkedList<Route> buildSimpleList() {
+        SimpleLinkedList<Route> result = new SimpleLinkedList<>(Route.class);
+        for (Route route : routes) {
+            result.add(route);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public RouteLinkedList buildRouteList() {
+        RouteLinkedList result = new RouteLinkedList();
+        for (Route route : routes) {
+            result.add(route);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public long sequentialGet() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += list.get(i).getId();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long iterate() {
+        long sum = 0;
+        for (Route route : list) {
+            sum += route.getId();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Route[] toArray() {
+        return list.toArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public void findByRouteNumber(Blackhole bh) {
+        for (int number : lookupNumbers) {
+            bh.consume(list.findByRouteNumber(number));
+        }
+    }
+
+    // Худший случай: номер, которого нет в списке
+    @Benchmark
+    public Route linearSearchMiss() {
+        return list.linearSearch(0);
+    }
+
+    @Benchmark
+    public Route findById() {
+        return list.findById(size / 2);
+    }
+
+    @Benchmark
+    public Route[] sortByCriteria() {
+        return RouteSorter.sort(routes, criteria);
+    }
+
+    @Benchmark
+    public RouteLinkedList mergeSortByNumber(Unsorted unsorted) {
+        unsorted.list.mergeSort(Comparator.comparingInt(Route::getRouteNumber));
+        return unsorted.list;
+    }
+
+    @Benchmark
+    public RouteLinkedList sortListByCriteria(Unsorted unsorted) {
+        unsorted.list.sort(criteria);
+        return unsorted.list;
+    }
+
+    /**
+     * Свежий неотсортированный список перед каждым вызовом: сортировка меняет список на месте.
+     * Сборка списка в замер не входит
+     */
+    @State(Scope.Thread)
+    public static class Unsorted {
+        RouteLinkedList list;
+
+        @Setup(Level.Invocation)
+        public void setUp(RouteListBenchmark benchmark) {
+            list = new RouteLinkedList();
+            for (Route route : benchmark.routes) {
+                list.add(route);
+            }
+        }
+    }
+}
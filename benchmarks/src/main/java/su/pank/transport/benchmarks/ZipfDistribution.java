@@ -0,0 +1,33 @@
+package su.pank.transport.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Распределение Ципфа на рангах 0..n-1: вероятность ранга k пропорциональна 1 / (k + 1)^exponent.
+ * Накопленные вероятности считаются один раз, выборка - двоичный поиск
+ */
+final class ZipfDistribution {
+    private final double[] cumulative;
+
+    ZipfDistribution(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Zipf distribution needs at least one rank");
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+        cumulative[n - 1] = 1.0;
+    }
+
+    int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return index >= 0 ? index : -index - 1;
+    }
+}
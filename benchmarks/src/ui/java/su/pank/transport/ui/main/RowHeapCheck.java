@@ -0,0 +1,174 @@
+package su.pank.transport.ui.main;
+
+import su.pank.transport.data.models.Route;
+import su.pank.transport.data.models.RoutePoint;
+import su.pank.transport.data.models.RouteType;
+
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.util.function.IntFunction;
+
+/**
+ * Память на строку таблицы маршрутов: прежние модели на свойствах JavaFX против
+ * неизменяемых Route/RoutePoint с ленивыми свойствами RouteUI. Строки держатся в массиве,
+ * прирост занятой кучи после сборки мусора делится на число строк. Строки депо общие во всех
+ * вариантах, поэтому сравниваются только объекты моделей. Тулкит JavaFX не запускается.
+ * Запуск: ./gradlew :benchmarks:rowHeap [-PheapRows=200000]
+ */
+public final class RowHeapCheck {
+    static final int DEFAULT_ROWS = 200_000;
+    private static final int DEPOTS = 1000;
+    private static final String[] CATEGORY_CODES = {"", "Э", "Н", "Э,Н", "Ш", "Э,Ш", "Н,Ш", "Э,Н,Ш"};
+
+    private RowHeapCheck() {
+    }
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROWS;
+        String[] localities = new String[DEPOTS];
+        String[] districts = new String[DEPOTS];
+        String[] descriptions = new String[DEPOTS];
+        RoutePoint[] points = new RoutePoint[DEPOTS];
+        for (int i = 0; i < DEPOTS; i++) {
+            localities[i] = "Город " + i % 40;
+            districts[i] = "Район " + i % 7;
+            descriptions[i] = "Депо " + i;
+            points[i] = new RoutePoint(i + 1, localities[i], districts[i], descriptions[i]);
+        }
+
+        double legacy = bytesPerRow(rows, i -> {
+            int start = i % DEPOTS;
+            int end = (i * 7 + 3) % DEPOTS;
+            return new LegacyRouteUI(new LegacyRoute(i + 1, i % 999 + 1,
+                    start + 1, localities[start], districts[start], descriptions[start],
+                    end + 1, localities[end], districts[end], descriptions[end], CATEGORY_CODES[i % 8]));
+        });
+        double plain = bytesPerRow(rows, i -> new RouteUI(route(i, points)));
+        double rendered = bytesPerRow(rows, i -> {
+            RouteUI row = new RouteUI(route(i, points));
+            // Свойства, которые запрашивают фабрики значений колонок MainView
+            row.routeProperty();
+            row.startPointProperty();
+            row.endPointProperty();
+            return row;
+        });
+
+        System.out.printf("Строк: %d%n", rows);
+        System.out.printf("Прежние модели на свойствах: %.1f байт на строку%n", legacy);
+        System.out.printf("Route + RouteUI, строка не отрисована: %.1f байт на строку (%.1f%%)%n",
+                plain, 100.0 * plain / legacy);
+        System.out.printf("Route + RouteUI, строка отрисована: %.1f байт на строку (%.1f%%)%n",
+                rendered, 100.0 * rendered / legacy);
+        if (plain >= legacy) {
+            System.err.println("Ошибка: строка таблицы занимает не меньше памяти, чем на прежних моделях");
+            System.exit(1);
+        }
+    }
+
+    private static Route route(int i, RoutePoint[] points) {
+        return new Route(i + 1, i % 999 + 1, points[i % DEPOTS], points[(i * 7 + 3) % DEPOTS], i % 8);
+    }
+
+    private static double bytesPerRow(int rows, IntFunction<Object> row) {
+        Object[] holder = new Object[rows];
+        long before = usedHeap();
+        for (int i = 0; i < rows; i++) {
+            holder[i] = row.apply(i);
+        }
+        long after = usedHeap();
+        // Массив должен дожить до замера
+        if (holder[rows - 1] == null) throw new IllegalStateException();
+        return (double) (after - before) / rows;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Несколько сборок подряд, пока занятая память не перестанет уменьшаться
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used) break;
+            used = current;
+        }
+        return used;
+    }
+
+    // Точка маршрута до перехода на неизменяемые модели: четыре свойства на поле
+    private static final class LegacyRoutePoint {
+        private final IntegerProperty id;
+        private final StringProperty locality;
+        private final StringProperty district;
+        private final StringProperty description;
+
+        LegacyRoutePoint(int id, String locality, String district, String description) {
+            this.id = new SimpleIntegerProperty(id);
+            this.locality = new SimpleStringProperty(locality);
+            this.district = new SimpleStringProperty(district);
+            this.description = new SimpleStringProperty(description);
+        }
+    }
+
+    // Маршрут до перехода: поля депо копией в каждом маршруте, категории массивом строк
+    private static final class LegacyRoute {
+        private final int id;
+        private final int routeNumber;
+        private final int startPointId;
+        private final String startLocality;
+        private final String startDistrict;
+        private final String startDescription;
+        private final int endPointId;
+        private final String endLocality;
+        private final String endDistrict;
+        private final String endDescription;
+        private final String[] specialCategories;
+        private final RouteType routeType;
+
+        LegacyRoute(int id, int routeNumber, int startPointId, String startLocality, String startDistrict,
+                    String startDescription, int endPointId, String endLocality, String endDistrict,
+                    String endDescription, String specialCategory) {
+            this.id = id;
+            this.routeNumber = routeNumber;
+            this.startPointId = startPointId;
+            this.startLocality = startLocality;
+            this.startDistrict = startDistrict;
+            this.startDescription = startDescription;
+            this.endPointId = endPointId;
+            this.endLocality = endLocality;
+            this.endDistrict = endDistrict;
+            this.endDescription = endDescription;
+            this.specialCategories = !specialCategory.isEmpty() ? specialCategory.split(",") : new String[0];
+            this.routeType = RouteType.fromRouteNumber(routeNumber);
+        }
+    }
+
+    // Строка таблицы до перехода: свойства на каждое поле и две точки маршрута на строку
+    private static final class LegacyRouteUI {
+        private final LegacyRoute route;
+        private final IntegerProperty id;
+        private final IntegerProperty routeNumber;
+        private final ObjectProperty<LegacyRoutePoint> startPoint;
+        private final ObjectProperty<LegacyRoutePoint> endPoint;
+        private final ObservableList<String> specialCategories;
+        private final StringProperty routeType;
+
+        LegacyRouteUI(LegacyRoute route) {
+            this.route = route;
+            this.id = new SimpleIntegerProperty(route.id);
+            this.routeNumber = new SimpleIntegerProperty(route.routeNumber);
+            this.startPoint = new SimpleObjectProperty<>(new LegacyRoutePoint(route.startPointId,
+                    route.startLocality, route.startDistrict, route.startDescription));
+            this.endPoint = new SimpleObjectProperty<>(new LegacyRoutePoint(route.endPointId,
+                    route.endLocality, route.endDistrict, route.endDescription));
+            this.specialCategories = FXCollections.observableArrayList(route.specialCategories);
+            this.routeType = new SimpleStringProperty(route.routeType.getDisplayName());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package su.pank.transport.ui.main;
+
+import su.pank.transport.data.models.Category;
+import su.pank.transport.data.models.Route;
+import su.pank.transport.data.models.RoutePoint;
+
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Stage;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Прокрутка таблицы маршрутов без экрана (Monocle) с теми же ячейками, что в MainView.
+ * Первый проход до конца прогревает пулы значков, во втором считаются новые ячейки, узлы сцены
+ * и память, выделенная потоком JavaFX. Ячейки должны переиспользоваться: новых почти нет.
+ * Запуск: ./gradlew :benchmarks:tableScroll [-PtableRows=50000]
+ */
+public final class TableScrollCheck {
+    static final int DEFAULT_ROWS = 50_000;
+    // Допуск на служебные ячейки VirtualFlow - не больше одной строки таблицы
+    private static final int MAX_NEW_CELLS = 3;
+
+    private TableScrollCheck() {
+    }
+
+    private record Result(int rows, int steps, int firstScreenCells, int newCells,
+                          int nodesBefore, int nodesAfter, long allocatedBytes, long nanos) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROWS;
+        CountDownLatch started = new CountDownLatch(1);
+        Platform.startup(started::countDown);
+        started.await();
+
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                future.complete(scroll(rows));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        Result result;
+        try {
+            result = future.get();
+        } finally {
+            Platform.exit();
+        }
+
+        System.out.printf("Строк: %d, шагов прокрутки: %d%n", result.rows(), result.steps());
+        System.out.printf("Ячеек на первом экране: %d, новых при прокрутке: %d%n",
+                result.firstScreenCells(), result.newCells());
+        System.out.printf("Узлов в сцене: %d -> %d%n", result.nodesBefore(), result.nodesAfter());
+        System.out.printf("Выделено потоком JavaFX: %.1f байт на строку, %.3f мс на шаг%n",
+                (double) result.allocatedBytes() / result.rows(), result.nanos() / 1e6 / result.steps());
+        if (result.newCells() > MAX_NEW_CELLS || result.nodesAfter() > result.nodesBefore()) {
+            System.err.println("Ошибка: ячейки таблицы не переиспользуются при прокрутке");
+            System.exit(1);
+        }
+    }
+
+    // Поток JavaFX
+    private static Result scroll(int rowCount) {
+        Category[] categories = {
+                new Category("Э", "Экспресс", "#C62828", "#FFFFFF", 0),
+                new Category("Н", "Ночной", "#283593", "#FFFFFF", 1),
+                new Category("Ш", "Школьный", "#F9A825", "#000000", 2)
+        };
+        CategoryStyles styles = new CategoryStyles(categories);
+
+        RoutePoint[] points = new RoutePoint[1000];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new RoutePoint(i + 1, "Город " + i % 40, "Район " + i % 7, "Депо " + i);
+        }
+        List<RouteUI> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            Route route = new Route(i + 1, i % 999 + 1, points[i % points.length],
+                    points[(i * 7 + 3) % points.length], i % 8);
+            rows.add(new RouteUI(route));
+        }
+
+        AtomicInteger cells = new AtomicInteger();
+        TableColumn<RouteUI, Route> idCol = new TableColumn<>("Id");
+        idCol.setCellValueFactory(cellData -> cellData.getValue().routeProperty());
+        idCol.setPrefWidth(120);
+        idCol.setCellFactory(col -> {
+            cells.incrementAndGet();
+            return new RouteBadgeCell(() -> styles);
+        });
+        TableColumn<RouteUI, RoutePoint> startCol = new TableColumn<>("Начальный пункт");
+        startCol.setCellValueFactory(cellData -> cellData.getValue().startPointProperty());
+        startCol.setCellFactory(col -> {
+            cells.incrementAndGet();
+            return new RoutePointCell();
+        });
+        TableColumn<RouteUI, RoutePoint> endCol = new TableColumn<>("Конечный пункт");
+        endCol.setCellValueFactory(cellData -> cellData.getValue().endPointProperty());
+        endCol.setCellFactory(col -> {
+            cells.incrementAndGet();
+            return new RoutePointCell();
+        });
+
+        TableView<RouteUI> table = new TableView<>();
+        table.getColumns().addAll(idCol, startCol, endCol);
+        table.getItems().setAll(rows);
+        Scene scene = new Scene(new StackPane(table), 1000, 700);
+        scene.getStylesheets().add("data:text/css," + styles.getStylesheet());
+        Stage stage = new Stage();
+        stage.setScene(scene);
+        stage.show();
+        pulse(scene);
+
+        int firstScreenCells = cells.get();
+        // Шаг - примерно экран строк
+        int step = 25;
+        scrollThrough(table, scene, step);
+        table.scrollTo(0);
+        pulse(scene);
+
+        int cellsBefore = cells.get();
+        int nodesBefore = countNodes(scene.getRoot());
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        int steps = scrollThrough(table, scene, step);
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        int nodesAfter = countNodes(scene.getRoot());
+        stage.hide();
+
+        return new Result(rowCount, steps, firstScreenCells, cells.get() - cellsBefore,
+                nodesBefore, nodesAfter, allocated, nanos);
+    }
+
+    private static int scrollThrough(TableView<RouteUI> table, Scene scene, int step) {
+        int steps = 0;
+        for (int i = 0; i < table.getItems().size(); i += step) {
+            table.scrollTo(i);
+            pulse(scene);
+            steps++;
+        }
+        return steps;
+    }
+
+    // Без анимационного таймера: CSS и раскладка, как в очередном кадре
+    private static void pulse(Scene scene) {
+        scene.getRoot().applyCss();
+        scene.getRoot().layout();
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        if (node instanceof Parent parent) {
+            for (Node child : parent.getChildrenUnmodifiable()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
+}
@@ -24,10 +24,33 @@ dependencies {
     implementation("org.xerial:sqlite-jdbc:3.44.1.0")
 }
 
+// Проверка планов запросов: отдельный набор исходников, запускается в составе check
+val queryPlans by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+    runtimeClasspath += output + compileClasspath + sourceSets.main.get().runtimeClasspath
+}
+
+val verifyQueryPlans by tasks.registering(JavaExec::class) {
+    group = "verification"
+    description = "Runs EXPLAIN QUERY PLAN on every repository statement and fails on full table scans."
+    classpath = queryPlans.runtimeClasspath
+    mainClass.set("su.pank.transport.data.QueryPlanCheck")
+}
+
+tasks.named("check") {
+    dependsOn(verifyQueryPlans)
+}
+
 application {
     mainClass.set("su.pank.transport.TransportRouteManagementApp")
 }
 
 tasks.named<JavaExec>("run") {
     standardInput = System.`in`
+    // ./gradlew run -Pjfr - запись JFR с профилем каталога в build/catalog.jfr, сбрасывается при выходе
+    if (project.hasProperty("jfr")) {
+        val settings = layout.projectDirectory.file("src/dist/catalog.jfc").asFile
+        val recording = layout.buildDirectory.file("catalog.jfr").get().asFile
+        jvmArgs("-XX:StartFlightRecording=settings=$settings,filename=$recording,dumponexit=true")
+    }
 }
@@ -1 +1,3 @@
 rootProject.name = "catalog"
+
+include("benchmarks")
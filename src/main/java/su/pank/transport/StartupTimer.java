@@ -0,0 +1,42 @@
+package su.pank.transport;
+
+import javafx.scene.Scene;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Отметки времени запуска от старта JVM: показ окна, первый кадр, заполненная таблица.
+ * Итог выводится одной строкой в stdout, если задано -Dtransport.metrics.startup=true
+ */
+final class StartupTimer {
+    private static final boolean ENABLED = Boolean.getBoolean("transport.metrics.startup");
+
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final StringBuilder marks = new StringBuilder();
+
+    void mark(String name) {
+        if (!ENABLED) return;
+        if (marks.length() > 0) marks.append(", ");
+        marks.append(name).append(' ').append(System.currentTimeMillis() - jvmStartMillis).append(" мс");
+    }
+
+    /**
+     * Отметка после раскладки первого импульса сцены, за которым сразу следует отрисовка кадра
+     */
+    void markFirstFrame(Scene scene) {
+        if (!ENABLED) return;
+        Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                mark("первый кадр");
+            }
+        };
+        scene.addPostLayoutPulseListener(listener);
+    }
+
+    void report() {
+        if (!ENABLED) return;
+        System.out.println("Запуск от старта JVM: " + marks);
+    }
+}
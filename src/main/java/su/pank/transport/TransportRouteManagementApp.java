@@ -1,7 +1,16 @@
 package su.pank.transport;
 
+import su.pank.transport.data.ConnectionProvider;
+import su.pank.transport.data.WriteBehindQueue;
+import su.pank.transport.data.csv.RouteCsvExporter;
+import su.pank.transport.data.csv.RouteCsvImporter;
+import su.pank.transport.data.metrics.RepositoryMetrics;
+import su.pank.transport.data.migration.SchemaMigrator;
+import su.pank.transport.data.repository.CategoryRepository;
+import su.pank.transport.data.repository.DepotRegistry;
 import su.pank.transport.data.repository.RoutePointRepository;
 import su.pank.transport.data.repository.RouteRepository;
+import su.pank.transport.ui.BackgroundExecutor;
 import su.pank.transport.ui.main.MainView;
 import su.pank.transport.ui.main.MainViewModel;
 
@@ -16,15 +25,42 @@ public class TransportRouteManagementApp extends Application {
 
     @Override
     public void start(Stage primaryStage) {
+        StartupTimer startupTimer = new StartupTimer();
+
         // Инициализация слоя данных
-        RouteRepository routeRepository = new RouteRepository();
-        RoutePointRepository routePointRepository = new RoutePointRepository();
+        ConnectionProvider connectionProvider = ConnectionProvider.getInstance();
+        CategoryRepository categoryRepository = CategoryRepository.getInstance();
+        DepotRegistry depotRegistry = DepotRegistry.getInstance();
+        RouteRepository routeRepository = new RouteRepository(connectionProvider, categoryRepository, depotRegistry);
+        RoutePointRepository routePointRepository = new RoutePointRepository(connectionProvider, depotRegistry);
+        RouteCsvImporter routeCsvImporter = new RouteCsvImporter(connectionProvider, categoryRepository,
+                routePointRepository);
+
+        RouteCsvExporter routeCsvExporter = new RouteCsvExporter(connectionProvider, categoryRepository);
+
+        SchemaMigrator schemaMigrator = new SchemaMigrator(connectionProvider, categoryRepository);
 
-        MainViewModel viewModel = new MainViewModel(routeRepository, routePointRepository);
-        viewModel.initialize();
+        MainViewModel viewModel = new MainViewModel(schemaMigrator, routeRepository, routePointRepository,
+                routeCsvImporter, routeCsvExporter, BackgroundExecutor.getInstance(), WriteBehindQueue.getInstance());
 
         MainView mainView = new MainView(viewModel, primaryStage);
         mainView.show();
+        startupTimer.mark("окно");
+        startupTimer.markFirstFrame(primaryStage.getScene());
+        mainView.loadInitialData().thenRun(() -> {
+            startupTimer.mark("данные");
+            startupTimer.report();
+        });
+    }
+
+    @Override
+    public void stop() {
+        // Запись очереди изменений до остановки фоновых задач, которые могут её ждать
+        WriteBehindQueue.getInstance().close();
+        BackgroundExecutor.getInstance().shutdown();
+        ConnectionProvider.getInstance().close();
+        // Итоговые метрики репозиториев за сеанс
+        RepositoryMetrics.getInstance().close();
     }
 
     public static void main(String[] args) {
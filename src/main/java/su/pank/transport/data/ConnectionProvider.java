@@ -0,0 +1,207 @@
+package su.pank.transport.data;
+
+import su.pank.transport.data.metrics.OperationTimer;
+import su.pank.transport.data.metrics.RepositoryMetrics;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Небольшой пул долгоживущих соединений SQLite, общий для всех репозиториев.
+ * Соединения открываются лениво и держат открытым файл базы, кэш страниц и подготовленные запросы
+ */
+public class ConnectionProvider implements AutoCloseable {
+    private static final String ACQUIRE_OPERATION = "ConnectionProvider.acquire";
+
+    private static ConnectionProvider instance;
+
+    private final DatabaseConfig config;
+    private final RepositoryMetrics metrics;
+    private final BlockingQueue<PooledConnection> idle;
+    private final List<PooledConnection> opened;
+    // Метка в idle после close(): ожидающий её получает, кладёт обратно для следующего и падает
+    private final PooledConnection closedMarker;
+    private boolean closed;
+
+    public ConnectionProvider(DatabaseConfig config) {
+        this(config, RepositoryMetrics.getInstance());
+    }
+
+    public ConnectionProvider(DatabaseConfig config, RepositoryMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+        this.idle = new ArrayBlockingQueue<>(config.getPoolSize());
+        this.opened = new ArrayList<>(config.getPoolSize());
+        this.closedMarker = new PooledConnection(null, this, 0);
+    }
+
+    public static synchronized ConnectionProvider getInstance() {
+        if (instance == null) {
+            instance = new ConnectionProvider(DatabaseConfig.fromSystemProperties());
+        }
+        return instance;
+    }
+
+    public DatabaseConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Метрики операций над этой базой, общие для репозиториев, которые берут соединения из пула
+     */
+    public RepositoryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Взять соединение из пула. Если все соединения заняты и пул заполнен - ждать освобождения
+     * не дольше acquireTimeoutMillis, затем SQLException.
+     * Соединение нужно вернуть через close() (try-with-resources)
+     */
+    public PooledConnection acquire() throws SQLException {
+        // Время ожидания свободного соединения и открытия нового
+        try (OperationTimer timer = metrics.start(ACQUIRE_OPERATION)) {
+            return acquireConnection();
+        } catch (SQLException e) {
+            metrics.recordError(ACQUIRE_OPERATION);
+            throw e;
+        }
+    }
+
+    private PooledConnection acquireConnection() throws SQLException {
+        PooledConnection conn = idle.poll();
+        if (conn == null) {
+            conn = openIfCapacity();
+            if (conn != null) {
+                return conn;
+            }
+            try {
+                conn = idle.poll(config.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            if (conn == null) {
+                // Например поток, который уже держит соединение, просит второе при пуле из одного
+                throw new SQLException("No database connection became free within "
+                        + config.getAcquireTimeoutMillis() + " ms (pool size " + config.getPoolSize() + ")");
+            }
+        }
+        if (conn == closedMarker) {
+            idle.offer(closedMarker);
+            throw new SQLException("Connection provider is closed");
+        }
+        return conn;
+    }
+
+    /**
+     * Начать транзакцию на соединении из пула. Соединение возвращается в пул через close()
+     */
+    public UnitOfWork beginWork() throws SQLException {
+        return beginWork(false);
+    }
+
+    /**
+     * Транзакция, которая читает перед записью: блокировка записи берётся сразу в BEGIN IMMEDIATE
+     * с ожиданием по busy_timeout, а не при первой записи
+     */
+    public UnitOfWork beginWriteWork() throws SQLException {
+        return beginWork(true);
+    }
+
+    private UnitOfWork beginWork(boolean write) throws SQLException {
+        PooledConnection conn = acquire();
+        try {
+            return new UnitOfWork(conn, write);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    private synchronized PooledConnection openIfCapacity() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection provider is closed");
+        }
+        if (opened.size() >= config.getPoolSize()) {
+            return null;
+        }
+        Connection connection = DriverManager.getConnection(config.getUrl());
+        try (Statement stmt = connection.createStatement()) {
+            if (config.getJournalMode() != null) {
+                stmt.execute("PRAGMA journal_mode=" + config.getJournalMode());
+            }
+            stmt.execute("PRAGMA synchronous=NORMAL");
+            stmt.execute("PRAGMA busy_timeout=5000");
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        PooledConnection conn = new PooledConnection(connection, this, config.getStatementCacheSize());
+        opened.add(conn);
+        return conn;
+    }
+
+    void release(PooledConnection conn) {
+        try {
+            Connection connection = conn.getConnection();
+            if (!connection.getAutoCommit()) {
+                // Незавершённая транзакция не должна попасть к следующему пользователю соединения
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Ошибка возврата соединения в пул: " + e.getMessage());
+            discard(conn);
+            return;
+        }
+        // Под тем же монитором, что и close(): иначе соединение может попасть в idle
+        // уже после того, как close() его опустошил, и остаться открытым
+        synchronized (this) {
+            if (closed) {
+                opened.remove(conn);
+                conn.closePhysically();
+                return;
+            }
+            idle.offer(conn);
+        }
+    }
+
+    /**
+     * Запросы из кэшей всех свободных соединений, для проверки планов запросов
+     */
+    synchronized Set<String> preparedSql() {
+        Set<String> sql = new LinkedHashSet<>();
+        for (PooledConnection conn : idle) {
+            sql.addAll(conn.cachedSql());
+        }
+        return sql;
+    }
+
+    private synchronized void discard(PooledConnection conn) {
+        opened.remove(conn);
+        conn.closePhysically();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        PooledConnection conn;
+        while ((conn = idle.poll()) != null) {
+            opened.remove(conn);
+            conn.closePhysically();
+        }
+        // Будит ждущих в acquire(); занятые соединения закроются при возврате в пул
+        idle.offer(closedMarker);
+    }
+}
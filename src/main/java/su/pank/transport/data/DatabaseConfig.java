@@ -1,5 +1,76 @@
 package su.pank.transport.data;
 
+/**
+ * Настройки подключения к базе данных.
+ * Значения по умолчанию можно переопределить системными свойствами
+ * (-Dtransport.db.url=..., -Dtransport.db.poolSize=..., -Dtransport.db.statementCacheSize=...,
+ * -Dtransport.db.acquireTimeoutMillis=...)
+ */
 public class DatabaseConfig {
-    public static final String DB_URL = "jdbc:sqlite:transport_routes.db";
+    public static final String DEFAULT_URL = "jdbc:sqlite:transport_routes.db";
+    public static final int DEFAULT_POOL_SIZE = 4;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+    public static final String DEFAULT_JOURNAL_MODE = "WAL";
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 30_000;
+
+    private final String url;
+    private final int poolSize;
+    private final int statementCacheSize;
+    private final String journalMode;
+    private final long acquireTimeoutMillis;
+
+    public DatabaseConfig(String url) {
+        this(url, DEFAULT_POOL_SIZE, DEFAULT_STATEMENT_CACHE_SIZE, DEFAULT_JOURNAL_MODE);
+    }
+
+    public DatabaseConfig(String url, int poolSize, int statementCacheSize, String journalMode) {
+        this(url, poolSize, statementCacheSize, journalMode, DEFAULT_ACQUIRE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param acquireTimeoutMillis сколько ждать свободного соединения, когда пул заполнен
+     */
+    public DatabaseConfig(String url, int poolSize, int statementCacheSize, String journalMode,
+                          long acquireTimeoutMillis) {
+        if (url == null || url.isBlank()) {
+            throw new IllegalArgumentException("Database url must not be empty");
+        }
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive: " + poolSize);
+        }
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("Statement cache size must not be negative: " + statementCacheSize);
+        }
+        if (acquireTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Acquire timeout must not be negative: " + acquireTimeoutMillis);
+        }
+        this.url = url;
+        this.poolSize = poolSize;
+        this.statementCacheSize = statementCacheSize;
+        this.journalMode = journalMode;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    public static DatabaseConfig fromSystemProperties() {
+        return new DatabaseConfig(
+                System.getProperty("transport.db.url", DEFAULT_URL),
+                Integer.getInteger("transport.db.poolSize", DEFAULT_POOL_SIZE),
+                Integer.getInteger("transport.db.statementCacheSize", DEFAULT_STATEMENT_CACHE_SIZE),
+                System.getProperty("transport.db.journalMode", DEFAULT_JOURNAL_MODE),
+                Long.getLong("transport.db.acquireTimeoutMillis", DEFAULT_ACQUIRE_TIMEOUT_MILLIS)
+        );
+    }
+
+    public String getUrl() { return url; }
+
+    public int getPoolSize() { return poolSize; }
+
+    public int getStatementCacheSize() { return statementCacheSize; }
+
+    /**
+     * @return режим журнала SQLite, null - оставить режим базы без изменений
+     */
+    public String getJournalMode() { return journalMode; }
+
+    public long getAcquireTimeoutMillis() { return acquireTimeoutMillis; }
 }
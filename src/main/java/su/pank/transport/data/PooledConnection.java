@@ -0,0 +1,102 @@
+package su.pank.transport.data;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Долгоживущее соединение из пула с кэшем подготовленных запросов.
+ * close() возвращает соединение в пул, а не закрывает его
+ */
+public class PooledConnection implements AutoCloseable {
+    private final Connection connection;
+    private final ConnectionProvider owner;
+    private final int statementCacheSize;
+    // LRU по порядку доступа: самый старый запрос закрывается при переполнении
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    PooledConnection(Connection connection, ConnectionProvider owner, int statementCacheSize) {
+        this.connection = connection;
+        this.owner = owner;
+        this.statementCacheSize = statementCacheSize;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Подготовленный запрос из кэша соединения.
+     * Запрос принадлежит соединению: закрывать его не нужно, закрывать нужно только ResultSet
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement cached = statements.get(sql);
+        if (cached != null && !cached.isClosed()) {
+            return cached;
+        }
+        PreparedStatement pstmt = connection.prepareStatement(sql);
+        if (statementCacheSize > 0) {
+            statements.put(sql, pstmt);
+            evictOverflow();
+        }
+        return pstmt;
+    }
+
+    /**
+     * Обычный Statement для DDL и разовых запросов, закрывается вызывающим
+     */
+    public Statement createStatement() throws SQLException {
+        return connection.createStatement();
+    }
+
+    /**
+     * @return тексты запросов, которые сейчас лежат в кэше соединения
+     */
+    Set<String> cachedSql() {
+        return new LinkedHashSet<>(statements.keySet());
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    @Override
+    public void close() {
+        owner.release(this);
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, PreparedStatement>> it = statements.entrySet().iterator();
+        while (statements.size() > statementCacheSize && it.hasNext()) {
+            PreparedStatement eldest = it.next().getValue();
+            it.remove();
+            closeQuietly(eldest);
+        }
+    }
+
+    /**
+     * Физическое закрытие соединения вместе с кэшированными запросами
+     */
+    void closePhysically() {
+        for (PreparedStatement pstmt : statements.values()) {
+            closeQuietly(pstmt);
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Ошибка закрытия соединения: " + e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ignored) {
+            // Запрос всё равно выбрасывается из кэша
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package su.pank.transport.data;
+
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteConnectionConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Транзакция на одном соединении из пула: несколько записей и чтение результата
+ * фиксируются одним commit. Без commit() изменения откатываются при close()
+ */
+public class UnitOfWork implements AutoCloseable {
+    private final PooledConnection conn;
+
+    /**
+     * @param write true - транзакция начинается с BEGIN IMMEDIATE и сразу берёт блокировку записи.
+     * Иначе транзакция, которая сначала читает, а потом пишет, получает SQLITE_BUSY без ожидания,
+     * если между чтением и первой записью другое соединение зафиксировало изменения (WAL)
+     */
+    UnitOfWork(PooledConnection conn, boolean write) throws SQLException {
+        this.conn = conn;
+        Connection connection = conn.getConnection();
+        if (write && connection.isWrapperFor(SQLiteConnection.class)) {
+            // Режим нужен только для этого BEGIN: commit() и rollback() драйвера сразу открывают
+            // следующую транзакцию с тем же режимом, а свободному соединению блокировка ни к чему
+            SQLiteConnectionConfig config = connection.unwrap(SQLiteConnection.class).getConnectionConfig();
+            SQLiteConfig.TransactionMode previous = config.getTransactionMode();
+            config.setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+            try {
+                connection.setAutoCommit(false);
+            } finally {
+                config.setTransactionMode(previous);
+            }
+        } else {
+            connection.setAutoCommit(false);
+        }
+    }
+
+    /**
+     * Соединение транзакции для методов репозиториев, принимающих соединение вызывающего
+     */
+    public PooledConnection getConnection() {
+        return conn;
+    }
+
+    public void commit() throws SQLException {
+        conn.getConnection().commit();
+    }
+
+    public void rollback() throws SQLException {
+        conn.getConnection().rollback();
+    }
+
+    @Override
+    public void close() {
+        // Пул откатывает незавершённую транзакцию и возвращает автокоммит при возврате соединения
+        conn.close();
+    }
+}
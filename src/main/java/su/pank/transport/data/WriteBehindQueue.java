@@ -0,0 +1,257 @@
+package su.pank.transport.data;
+
+import su.pank.transport.data.metrics.OperationTimer;
+import su.pank.transport.data.metrics.RepositoryMetrics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отложенная запись: изменения встают в очередь и пишутся одним потоком группами в одной
+ * транзакции - через flushMillis после первой записи группы или сразу по набору maxBatch записей.
+ * Порядок записей сохраняется. Каждая запись выполняется под своей точкой сохранения,
+ * поэтому ошибка одной записи откатывает только её, а остальные фиксируются общим commit
+ */
+public class WriteBehindQueue implements AutoCloseable {
+    public static final long DEFAULT_FLUSH_MILLIS = 5;
+    public static final int DEFAULT_MAX_BATCH = 64;
+    private static final String FLUSH_OPERATION = "WriteBehindQueue.flush";
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private static WriteBehindQueue instance;
+
+    /**
+     * Запись на соединении потока записи внутри транзакции группы
+     */
+    public interface Write<T> {
+        T apply(PooledConnection conn) throws SQLException;
+
+        /**
+         * Запись выполнилась, но транзакция группы откатилась. Вызывается в потоке записи
+         * до следующей группы, например чтобы забыть id, выданные откаченной вставкой
+         */
+        default void rolledBack() {
+        }
+    }
+
+    // Запись в очереди; write == null - метка flush(), группа с ней пишется без ожидания
+    private static final class Pending<T> {
+        final Write<T> write;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        Exception error;
+        boolean applied;
+
+        Pending(Write<T> write) {
+            this.write = write;
+        }
+
+        void apply(PooledConnection conn) throws SQLException {
+            Connection connection = conn.getConnection();
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                result = write.apply(conn);
+                applied = true;
+            } catch (SQLException | RuntimeException e) {
+                error = e;
+                connection.rollback(savepoint);
+            }
+            connection.releaseSavepoint(savepoint);
+        }
+
+        void rollBack(SQLException cause) {
+            if (applied) {
+                applied = false;
+                write.rolledBack();
+            }
+            if (error == null) {
+                error = cause;
+            }
+        }
+
+        void complete() {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+
+    private static final Pending<Void> STOP = new Pending<>(null);
+
+    private final ConnectionProvider connectionProvider;
+    private final RepositoryMetrics metrics;
+    private final boolean enabled;
+    private final long flushNanos;
+    private final int maxBatch;
+    private final BlockingQueue<Pending<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private boolean closed;
+
+    /**
+     * @param enabled false - очередь не запускается, записи идут прежним синхронным путём
+     * @param flushMillis сколько ждать следующих записей после первой записи группы
+     * @param maxBatch наибольшее число записей в одной транзакции
+     */
+    public WriteBehindQueue(ConnectionProvider connectionProvider, boolean enabled, long flushMillis, int maxBatch) {
+        if (flushMillis < 0) {
+            throw new IllegalArgumentException("Flush interval must not be negative: " + flushMillis);
+        }
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + maxBatch);
+        }
+        this.connectionProvider = connectionProvider;
+        this.metrics = connectionProvider.getMetrics();
+        this.enabled = enabled;
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.maxBatch = maxBatch;
+        if (enabled) {
+            // Поток-демон не держит приложение; очередь дописывается в close() из stop()
+            writer = new Thread(this::run, "transport-writer");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            writer = null;
+        }
+    }
+
+    /**
+     * Общая очередь приложения, настройки из системных свойств
+     */
+    public static synchronized WriteBehindQueue getInstance() {
+        if (instance == null) {
+            instance = new WriteBehindQueue(ConnectionProvider.getInstance(),
+                    Boolean.getBoolean("transport.db.writeBehind"),
+                    Long.getLong("transport.db.writeBehindMillis", DEFAULT_FLUSH_MILLIS),
+                    Integer.getInteger("transport.db.writeBehindBatch", DEFAULT_MAX_BATCH));
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Поставить запись в очередь
+     * @return результат записи после commit её группы; ошибка записи или commit - исключением
+     */
+    public <T> CompletableFuture<T> submit(Write<T> write) {
+        if (!enabled) {
+            throw new IllegalStateException("Write-behind queue is disabled");
+        }
+        return enqueue(new Pending<>(write));
+    }
+
+    /**
+     * @return завершается, когда все записи, поставленные до вызова, записаны или отклонены.
+     * Без отложенной записи завершён сразу
+     */
+    public CompletableFuture<Void> flush() {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return enqueue(new Pending<>(null));
+    }
+
+    private synchronized <T> CompletableFuture<T> enqueue(Pending<T> pending) {
+        if (closed) {
+            pending.future.completeExceptionally(new IllegalStateException("Write-behind queue is closed"));
+        } else {
+            queue.add(pending);
+        }
+        return pending.future;
+    }
+
+    private void run() {
+        List<Pending<?>> group = new ArrayList<>(maxBatch);
+        boolean stop = false;
+        try {
+            while (!stop) {
+                Pending<?> first = queue.take();
+                if (first == STOP) break;
+                group.add(first);
+                long deadline = System.nanoTime() + flushNanos;
+                while (first.write != null && group.size() < maxBatch) {
+                    long wait = deadline - System.nanoTime();
+                    Pending<?> next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    if (next == STOP) {
+                        stop = true;
+                        break;
+                    }
+                    group.add(next);
+                    if (next.write == null) break;
+                }
+                writeGroup(group);
+                group.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Ошибка отложенной записи: поток записи прерван");
+        }
+    }
+
+    private void writeGroup(List<Pending<?>> group) {
+        int writes = 0;
+        for (Pending<?> pending : group) {
+            if (pending.write != null) writes++;
+        }
+        if (writes > 0) {
+            // Записи группы проверяют данные перед записью (дубликаты депо, занятость депо)
+            try (OperationTimer timer = metrics.start(FLUSH_OPERATION);
+                 UnitOfWork work = connectionProvider.beginWriteWork()) {
+                int applied = 0;
+                for (Pending<?> pending : group) {
+                    if (pending.write == null) continue;
+                    pending.apply(work.getConnection());
+                    if (pending.applied) applied++;
+                }
+                work.commit();
+                timer.rowsWritten(applied);
+            } catch (SQLException e) {
+                metrics.recordError(FLUSH_OPERATION);
+                System.err.println("Ошибка записи группы изменений: " + e.getMessage());
+                for (Pending<?> pending : group) {
+                    if (pending.write != null) {
+                        pending.rollBack(e);
+                    }
+                }
+            }
+        }
+        // Результаты отдаются после commit и по порядку записей
+        for (Pending<?> pending : group) {
+            pending.complete();
+        }
+    }
+
+    /**
+     * Запись всего, что уже в очереди, и остановка потока записи. Новые записи отклоняются
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            if (writer == null) return;
+            queue.add(STOP);
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+            if (writer.isAlive()) {
+                System.err.println("Ошибка остановки отложенной записи: очередь не записана за "
+                        + CLOSE_TIMEOUT_SECONDS + " секунд");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
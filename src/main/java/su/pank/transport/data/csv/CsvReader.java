@@ -0,0 +1,350 @@
+package su.pank.transport.data.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Потоковый разбор CSV по RFC 4180 конечным автоматом.
+ * Файл читается в UTF-8 через большой буфер NIO; поля в кавычках могут содержать запятые,
+ * переводы строк и экранированные кавычки (""). Поля текущей записи отдаются как
+ * переиспользуемые CharSequence, которые действительны до следующего вызова next()
+ */
+public final class CsvReader implements Closeable {
+    private static final int BYTE_BUFFER_SIZE = 1 << 20;
+    private static final int CHAR_BUFFER_SIZE = 1 << 18;
+
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+
+    private final ReadableByteChannel channel;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes;
+    private final CharBuffer chars;
+    private boolean endOfInput;
+    private boolean finished;
+    private boolean firstChunk = true;
+    // Перевод строки \r\n: \n после \r не должен начинать пустую запись
+    private boolean skipLineFeed;
+
+    // Символы текущей записи и границы полей в них
+    private char[] record = new char[256];
+    private int recordLength;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+    private Field[] views = new Field[0];
+    private long recordNumber;
+    private long bytesRead;
+
+    public CsvReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        this.bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+        this.bytes.flip();
+        this.chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+        this.chars.flip();
+    }
+
+    public static CsvReader open(Path path) throws IOException {
+        return new CsvReader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Переход к следующей записи
+     * @return false, если файл закончился
+     */
+    public boolean next() throws IOException {
+        recordLength = 0;
+        fieldCount = 0;
+        int state = FIELD_START;
+        int fieldStart = 0;
+        boolean hasData = false;
+
+        while (true) {
+            if (!chars.hasRemaining() && !fill()) {
+                if (!hasData) {
+                    return false;
+                }
+                endField(fieldStart);
+                recordNumber++;
+                return true;
+            }
+            char c = chars.get();
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (c == '\n') continue;
+            }
+
+            switch (state) {
+                case FIELD_START -> {
+                    if (c == '"') {
+                        state = QUOTED;
+                        hasData = true;
+                    } else if (c == ',') {
+                        endField(fieldStart);
+                        fieldStart = recordLength;
+                        hasData = true;
+                    } else if (c == '\r' || c == '\n') {
+                        skipLineFeed = c == '\r';
+                        if (hasData) {
+                            endField(fieldStart);
+                            recordNumber++;
+                            return true;
+                        }
+                        // Пустые строки пропускаются
+                    } else {
+                        append(c);
+                        state = UNQUOTED;
+                        hasData = true;
+                    }
+                }
+                case UNQUOTED -> {
+                    if (c == ',') {
+                        endField(fieldStart);
+                        fieldStart = recordLength;
+                        state = FIELD_START;
+                    } else if (c == '\r' || c == '\n') {
+                        skipLineFeed = c == '\r';
+                        endField(fieldStart);
+                        recordNumber++;
+                        return true;
+                    } else {
+                        append(c);
+                    }
+                }
+                case QUOTED -> {
+                    if (c == '"') {
+                        state = QUOTE_IN_QUOTED;
+                    } else {
+                        append(c);
+                    }
+                }
+                default -> { // QUOTE_IN_QUOTED
+                    if (c == '"') {
+                        append('"');
+                        state = QUOTED;
+                    } else if (c == ',') {
+                        endField(fieldStart);
+                        fieldStart = recordLength;
+                        state = FIELD_START;
+                    } else if (c == '\r' || c == '\n') {
+                        skipLineFeed = c == '\r';
+                        endField(fieldStart);
+                        recordNumber++;
+                        return true;
+                    } else {
+                        // Нестрогий режим: символ после закрывающей кавычки остаётся в поле
+                        append(c);
+                        state = UNQUOTED;
+                    }
+                }
+            }
+        }
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @return номер текущей записи, начиная с 1
+     */
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Поле текущей записи без копирования. Объект переиспользуется следующими записями
+     */
+    public CharSequence field(int index) {
+        checkIndex(index);
+        return views[index];
+    }
+
+    public String fieldString(int index) {
+        checkIndex(index);
+        return new String(record, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+    }
+
+    /**
+     * @return поле без пробелов по краям, пустые поля возвращаются как ""
+     */
+    public String fieldTrimmed(int index) {
+        checkIndex(index);
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        while (start < end && Character.isWhitespace(record[start])) start++;
+        while (end > start && Character.isWhitespace(record[end - 1])) end--;
+        return start == end ? "" : new String(record, start, end - start);
+    }
+
+    /**
+     * Разбор целого числа прямо из буфера записи, пробелы по краям допускаются
+     * @throws NumberFormatException если поле не является числом
+     */
+    public int fieldInt(int index) {
+        checkIndex(index);
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        while (start < end && Character.isWhitespace(record[start])) start++;
+        while (end > start && Character.isWhitespace(record[end - 1])) end--;
+        if (start == end) {
+            throw new NumberFormatException("Empty field " + index);
+        }
+        boolean negative = record[start] == '-';
+        if (negative || record[start] == '+') start++;
+        if (start == end || end - start > 9) {
+            throw new NumberFormatException("Not an int: " + fieldString(index));
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = record[i];
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not an int: " + fieldString(index));
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return количество байт, прочитанных из канала (с опережением на размер буфера)
+     */
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+        }
+    }
+
+    private void append(char c) {
+        if (recordLength == record.length) {
+            record = Arrays.copyOf(record, record.length * 2);
+        }
+        record[recordLength++] = c;
+    }
+
+    private void endField(int start) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        if (fieldCount == views.length) {
+            Field[] grown = Arrays.copyOf(views, Math.max(8, views.length * 2));
+            for (int i = views.length; i < grown.length; i++) {
+                grown[i] = new Field(i);
+            }
+            views = grown;
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = recordLength;
+        fieldCount++;
+    }
+
+    /**
+     * Декодирование следующей порции байтов в символы
+     * @return false, если данных больше нет
+     */
+    private boolean fill() throws IOException {
+        while (!finished) {
+            decodeChunk();
+            if (chars.hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void decodeChunk() throws IOException {
+        chars.clear();
+        while (true) {
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (result.isOverflow()) {
+                break;
+            }
+            if (endOfInput) {
+                decoder.flush(chars);
+                finished = true;
+                break;
+            }
+            if (chars.position() > 0) {
+                break;
+            }
+            bytes.compact();
+            int read = channel.read(bytes);
+            bytes.flip();
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                bytesRead += read;
+            }
+        }
+        chars.flip();
+        if (firstChunk && chars.hasRemaining()) {
+            firstChunk = false;
+            if (chars.get(chars.position()) == '\uFEFF') {
+                chars.get(); // BOM
+            }
+        }
+    }
+
+    /**
+     * Представление поля текущей записи поверх общего буфера
+     */
+    private final class Field implements CharSequence {
+        private final int index;
+
+        Field(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int length() {
+            return fieldEnds[index] - fieldStarts[index];
+        }
+
+        @Override
+        public char charAt(int i) {
+            if (i < 0 || i >= length()) {
+                throw new IndexOutOfBoundsException(i);
+            }
+            return record[fieldStarts[index] + i];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(record, fieldStarts[index] + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(record, fieldStarts[index], length());
+        }
+    }
+}
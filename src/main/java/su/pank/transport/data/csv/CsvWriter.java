@@ -0,0 +1,137 @@
+package su.pank.transport.data.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Запись CSV в канал: символы копятся в переиспользуемом буфере и кодируются в UTF-8
+ * прямо в байтовый буфер NIO без промежуточных строк
+ */
+public final class CsvWriter implements Closeable {
+    private static final int CHAR_BUFFER_SIZE = 1 << 16;
+    private static final int BYTE_BUFFER_SIZE = 1 << 18;
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars;
+    private final ByteBuffer bytes;
+    private final char[] digits = new char[11];
+    private long bytesWritten;
+
+    public CsvWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+        this.bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+    }
+
+    public CsvWriter append(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode(false);
+        }
+        chars.put(c);
+        return this;
+    }
+
+    public CsvWriter append(CharSequence text) throws IOException {
+        for (int i = 0, n = text.length(); i < n; i++) {
+            append(text.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Текст внутри поля в кавычках: кавычки удваиваются по RFC 4180
+     */
+    public CsvWriter appendEscaped(CharSequence text) throws IOException {
+        if (text == null) return this;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                append('"');
+            }
+            append(c);
+        }
+        return this;
+    }
+
+    public CsvWriter appendInt(int value) throws IOException {
+        if (value == Integer.MIN_VALUE) {
+            return append(Integer.toString(value));
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        int pos = digits.length;
+        do {
+            digits[--pos] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = pos; i < digits.length; i++) {
+            append(digits[i]);
+        }
+        return this;
+    }
+
+    public CsvWriter endRecord() throws IOException {
+        return append('\n');
+    }
+
+    /**
+     * @return количество байт, переданных в канал
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public void flush() throws IOException {
+        encode(true);
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isOverflow()) {
+                drain();
+            } else {
+                break;
+            }
+        }
+        if (endOfInput) {
+            while (encoder.flush(bytes).isOverflow()) {
+                drain();
+            }
+            encoder.reset();
+        }
+        chars.compact();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            bytesWritten += channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
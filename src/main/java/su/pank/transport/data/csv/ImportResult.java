@@ -0,0 +1,18 @@
+package su.pank.transport.data.csv;
+
+/**
+ * Итог импорта: сколько строк записано и сколько пропущено как невалидные или дубликаты
+ */
+public final class ImportResult {
+    private final int imported;
+    private final int skipped;
+
+    public ImportResult(int imported, int skipped) {
+        this.imported = imported;
+        this.skipped = skipped;
+    }
+
+    public int getImported() { return imported; }
+
+    public int getSkipped() { return skipped; }
+}
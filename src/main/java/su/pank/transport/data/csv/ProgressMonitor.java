@@ -0,0 +1,28 @@
+package su.pank.transport.data.csv;
+
+/**
+ * Наблюдатель за долгой операцией импорта или экспорта.
+ * Вызывается из фонового потока, поэтому реализация должна быть потокобезопасной
+ */
+public interface ProgressMonitor {
+    ProgressMonitor NONE = new ProgressMonitor() {
+        @Override
+        public void progress(long workDone, long totalWork) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    /**
+     * @param totalWork общий объём работы, 0 если неизвестен
+     */
+    void progress(long workDone, long totalWork);
+
+    /**
+     * @return true, если операцию нужно прервать
+     */
+    boolean isCancelled();
+}
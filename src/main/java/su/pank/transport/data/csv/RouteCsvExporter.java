@@ -0,0 +1,168 @@
+package su.pank.transport.data.csv;
+
+import su.pank.transport.data.ConnectionProvider;
+import su.pank.transport.data.PooledConnection;
+import su.pank.transport.data.models.RouteType;
+import su.pank.transport.data.repository.CategoryDictionary;
+import su.pank.transport.data.repository.CategoryRepository;
+import su.pank.transport.jfr.ExportChunkEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Экспорт маршрутов в CSV потоком прямо из курсора route_summary.
+ * Объекты Route не создаются, поэтому размер каталога не ограничен памятью
+ */
+public class RouteCsvExporter {
+    public static final String HEADER = "ID,Route Number,Start Point,End Point,Special Category,Route Type";
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+    private static final int PROGRESS_INTERVAL = 256;
+
+    private final ConnectionProvider connectionProvider;
+    private final CategoryRepository categoryRepository;
+
+    public RouteCsvExporter(ConnectionProvider connectionProvider, CategoryRepository categoryRepository) {
+        this.connectionProvider = connectionProvider;
+        this.categoryRepository = categoryRepository;
+    }
+
+    /**
+     * Экспорт в файл, для имени *.gz вывод сжимается gzip
+     * @return количество выгруженных маршрутов
+     */
+    public int exportFile(File file) throws IOException {
+        return exportFile(file, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Экспорт с отчётом о прогрессе по числу маршрутов.
+     * При отмене или ошибке недописанный файл удаляется; отмена - CancellationException
+     */
+    public int exportFile(File file, ProgressMonitor monitor) throws IOException {
+        return export(file.toPath(), file.getName().endsWith(".gz"), monitor);
+    }
+
+    public int export(Path path, boolean gzip, ProgressMonitor monitor) throws IOException {
+        FileChannel fileChannel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        WritableByteChannel channel = fileChannel;
+        if (gzip) {
+            try {
+                channel = Channels.newChannel(
+                        new GZIPOutputStream(Channels.newOutputStream(fileChannel), GZIP_BUFFER_SIZE));
+            } catch (IOException e) {
+                fileChannel.close();
+                deletePartial(path, e);
+                throw e;
+            }
+        }
+        try (CsvWriter writer = new CsvWriter(channel)) {
+            return writeRoutes(writer, monitor);
+        } catch (IOException | RuntimeException e) {
+            deletePartial(path, e);
+            throw e;
+        }
+    }
+
+    // Ошибка удаления не заменяет исходную причину
+    private static void deletePartial(Path path, Exception cause) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Запись заголовка и всех маршрутов в уже открытый writer
+     */
+    public int writeRoutes(CsvWriter writer, ProgressMonitor monitor) throws IOException {
+        String sql = """
+                SELECT route_id, route_number,
+                       start_locality, start_district, start_description,
+                       end_locality, end_district, end_description,
+                       category_mask
+                FROM route_summary
+                """;
+        CategoryDictionary categories = categoryRepository.getDictionary();
+        // Маршруты с одинаковым набором категорий дают одну и ту же строку кодов
+        Map<Integer, String> codesByMask = new HashMap<>();
+        writer.append(HEADER).endRecord();
+        int count = 0;
+        try (PooledConnection conn = connectionProvider.acquire()) {
+            int total = countRoutes(conn);
+            // Событие JFR на каждые PROGRESS_INTERVAL маршрутов и на остаток
+            ExportChunkEvent chunk = new ExportChunkEvent();
+            chunk.begin();
+            int chunkStart = 0;
+            try (ResultSet rs = conn.prepare(sql).executeQuery()) {
+                while (rs.next()) {
+                    int routeNumber = rs.getInt(2);
+                    writer.appendInt(rs.getInt(1)).append(',')
+                            .appendInt(routeNumber).append(',');
+                    appendPoint(writer, rs.getString(5), rs.getString(3), rs.getString(4));
+                    writer.append(',');
+                    appendPoint(writer, rs.getString(8), rs.getString(6), rs.getString(7));
+                    String codes = codesByMask.computeIfAbsent(rs.getInt(9), mask -> categories.format(mask, ","));
+                    writer.append(",\"").appendEscaped(codes).append("\",\"")
+                            .append(RouteType.fromRouteNumber(routeNumber).getDisplayName()).append('"')
+                            .endRecord();
+                    count++;
+                    if (count % PROGRESS_INTERVAL == 0) {
+                        commitChunk(chunk, count - chunkStart, total, writer);
+                        chunk = new ExportChunkEvent();
+                        chunk.begin();
+                        chunkStart = count;
+                        if (monitor.isCancelled()) {
+                            throw new CancellationException("Экспорт отменён");
+                        }
+                        monitor.progress(count, total);
+                    }
+                }
+            }
+            if (count > chunkStart) {
+                commitChunk(chunk, count - chunkStart, total, writer);
+            }
+            monitor.progress(count, count);
+        } catch (SQLException e) {
+            throw new IOException("Ошибка чтения маршрутов для экспорта: " + e.getMessage(), e);
+        }
+        return count;
+    }
+
+    private static void commitChunk(ExportChunkEvent chunk, int rows, int total, CsvWriter writer) {
+        chunk.rows = rows;
+        chunk.totalRows = total;
+        // Без учёта ещё не сброшенного буфера writer
+        chunk.bytesWritten = writer.getBytesWritten();
+        chunk.commit();
+    }
+
+    private static int countRoutes(PooledConnection conn) throws SQLException {
+        try (ResultSet rs = conn.prepare("SELECT COUNT(*) FROM route_summary").executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // "Описание (Населённый пункт, Район)" - формат, который понимает импорт
+    private static void appendPoint(CsvWriter writer, String description, String locality, String district)
+            throws IOException {
+        writer.append('"').appendEscaped(description)
+                .append(" (").appendEscaped(locality)
+                .append(", ").appendEscaped(district)
+                .append(")\"");
+    }
+}
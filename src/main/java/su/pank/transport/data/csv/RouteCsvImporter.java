@@ -0,0 +1,243 @@
+package su.pank.transport.data.csv;
+
+import su.pank.transport.data.ConnectionProvider;
+import su.pank.transport.data.PooledConnection;
+import su.pank.transport.data.UnitOfWork;
+import su.pank.transport.data.models.RoutePoint;
+import su.pank.transport.data.repository.CategoryDictionary;
+import su.pank.transport.data.repository.CategoryRepository;
+import su.pank.transport.data.repository.RoutePointRepository;
+import su.pank.transport.domain.RouteNumberIndex;
+import su.pank.transport.domain.RoutePointIndex;
+import su.pank.transport.jfr.DepotResolutionEvent;
+import su.pank.transport.jfr.ImportBatchEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Импорт маршрутов из CSV одним проходом: строки читаются потоково, точки и номера
+ * маршрутов разрешаются в памяти, а запись идёт в одной транзакции пакетными вставками
+ */
+public class RouteCsvImporter {
+    private static final int BATCH_SIZE = 500;
+    private static final int PROGRESS_INTERVAL = 256;
+
+    private final ConnectionProvider connectionProvider;
+    private final CategoryRepository categoryRepository;
+    private final RoutePointRepository routePointRepository;
+
+    public RouteCsvImporter(ConnectionProvider connectionProvider, CategoryRepository categoryRepository,
+                            RoutePointRepository routePointRepository) {
+        this.connectionProvider = connectionProvider;
+        this.categoryRepository = categoryRepository;
+        this.routePointRepository = routePointRepository;
+    }
+
+    public ImportResult importFile(File file) throws IOException {
+        return importFile(file, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Импорт с отчётом о прогрессе по прочитанным байтам файла.
+     * При отмене транзакция откатывается и выбрасывается CancellationException
+     */
+    public ImportResult importFile(File file, ProgressMonitor monitor) throws IOException {
+        long fileSize = file.length();
+        // Индекс и словарь категорий готовятся до начала транзакции: их загрузка берёт своё
+        // соединение из пула, а при пуле из одного соединения не дождалась бы его освобождения.
+        // Новые точки дописываются в индекс по ходу импорта
+        RoutePointIndex pointIndex = new RoutePointIndex(routePointRepository.getAllRoutePoints());
+        CategoryDictionary categories = categoryRepository.getDictionary();
+        // Занятые номера читаются до первой вставки, поэтому блокировка записи берётся сразу
+        try (UnitOfWork work = connectionProvider.beginWriteWork();
+             CsvReader reader = CsvReader.open(file.toPath())) {
+            ImportSession session = null;
+            try {
+                session = new ImportSession(work.getConnection(), categories,
+                        routePointRepository, pointIndex, fileSize);
+                reader.next(); // Пропуск заголовков
+                while (reader.next()) {
+                    session.importRecord(reader);
+                    if (reader.recordNumber() % PROGRESS_INTERVAL == 0) {
+                        if (monitor.isCancelled()) {
+                            throw new CancellationException("Импорт отменён");
+                        }
+                        monitor.progress(reader.bytesRead(), fileSize);
+                    }
+                }
+                session.flush();
+                monitor.progress(fileSize, fileSize);
+                work.commit();
+                return new ImportResult(session.imported, session.skipped);
+            } catch (SQLException | IOException | RuntimeException e) {
+                if (session != null) {
+                    session.discard();
+                }
+                work.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Ошибка записи импорта в базу данных: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Состояние одного импорта внутри открытой транзакции
+     */
+    private static class ImportSession {
+        private final PooledConnection conn;
+        private final CategoryDictionary categories;
+        private final RoutePointRepository routePointRepository;
+        private final RoutePointIndex pointIndex;
+        private final BitSet usedNumbers = new BitSet(RouteNumberIndex.MAX_ROUTE_NUMBER + 1);
+        private final List<RoutePoint> createdPoints = new ArrayList<>();
+        private final PreparedStatement insertRoute;
+        private final long fileSize;
+        private int pending;
+        // Событие JFR текущего пакета: от первой записи до executeBatch
+        private ImportBatchEvent batch;
+        private int batchSkippedFrom;
+        private long bytesRead;
+        int imported;
+        int skipped;
+
+        ImportSession(PooledConnection conn, CategoryDictionary categories,
+                      RoutePointRepository routePointRepository, RoutePointIndex pointIndex,
+                      long fileSize) throws SQLException {
+            this.conn = conn;
+            this.categories = categories;
+            this.routePointRepository = routePointRepository;
+            this.pointIndex = pointIndex;
+            this.fileSize = fileSize;
+            this.insertRoute = conn.prepare(
+                    "INSERT INTO routes (route_number, start_point_id, end_point_id, category_mask) VALUES (?, ?, ?, ?)");
+            loadUsedNumbers();
+        }
+
+        private void loadUsedNumbers() throws SQLException {
+            try (ResultSet rs = conn.prepare("SELECT route_number FROM routes").executeQuery()) {
+                while (rs.next()) {
+                    usedNumbers.set(rs.getInt(1));
+                }
+            }
+        }
+
+        void importRecord(CsvReader record) throws SQLException {
+            if (batch == null) {
+                batch = new ImportBatchEvent();
+                batch.begin();
+                batchSkippedFrom = skipped;
+            }
+            bytesRead = record.bytesRead();
+            if (record.fieldCount() < 6) {
+                skipped++;
+                return;
+            }
+
+            int routeNumber;
+            try {
+                routeNumber = record.fieldInt(1);
+            } catch (NumberFormatException e) {
+                skipped++;
+                return;
+            }
+            if (!RouteNumberIndex.isValidNumber(routeNumber) || usedNumbers.get(routeNumber)) {
+                skipped++;
+                return;
+            }
+
+            RoutePoint startPoint = findOrCreateRoutePoint(record.fieldTrimmed(2));
+            RoutePoint endPoint = findOrCreateRoutePoint(record.fieldTrimmed(3));
+
+            insertRoute.setInt(1, routeNumber);
+            insertRoute.setInt(2, startPoint.getId());
+            insertRoute.setInt(3, endPoint.getId());
+            // Неизвестные и повторяющиеся коды на маску не влияют
+            insertRoute.setInt(4, categories.parseMask(record.fieldTrimmed(4)));
+            insertRoute.addBatch();
+
+            usedNumbers.set(routeNumber);
+            imported++;
+            if (++pending >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        /**
+         * Поиск точки по строке вида "Описание (Населённый пункт, Район)" по всем трём полям.
+         * Новая точка вставляется сразу в той же транзакции, чтобы маршруты пакета ссылались на её id
+         */
+        private RoutePoint findOrCreateRoutePoint(String pointStr) throws SQLException {
+            DepotResolutionEvent event = new DepotResolutionEvent();
+            event.begin();
+            String description = pointStr;
+            String locality = "";
+            String district = "";
+            if (pointStr.contains("(") && pointStr.contains(")")) {
+                int openParen = pointStr.lastIndexOf("(");
+                int closeParen = pointStr.lastIndexOf(")");
+                if (openParen < closeParen) {
+                    description = pointStr.substring(0, openParen).trim();
+                    String locDist = pointStr.substring(openParen + 1, closeParen);
+                    String[] locDistParts = locDist.split(",");
+                    if (locDistParts.length >= 2) {
+                        locality = locDistParts[0].trim();
+                        district = locDistParts[1].trim();
+                    }
+                }
+            }
+
+            RoutePoint existing = pointIndex.find(description, locality, district);
+            if (existing != null) {
+                event.description = description;
+                event.commit();
+                return existing;
+            }
+
+            RoutePoint newPoint = routePointRepository.addRoutePoint(conn,
+                    new RoutePoint(0, locality, district, description));
+            pointIndex.put(newPoint);
+            createdPoints.add(newPoint);
+            event.description = description;
+            event.created = true;
+            event.commit();
+            return newPoint;
+        }
+
+        void flush() throws SQLException {
+            if (pending > 0) {
+                insertRoute.executeBatch();
+            }
+            if (batch != null) {
+                batch.rows = pending;
+                batch.skipped = skipped - batchSkippedFrom;
+                batch.bytesRead = bytesRead;
+                batch.fileSize = fileSize;
+                batch.commit();
+                batch = null;
+            }
+            pending = 0;
+        }
+
+        /**
+         * Сброс накопленных пакетов: запросы кэшируются в соединении и будут использованы снова.
+         * Точки, созданные в откатываемой транзакции, убираются из общего реестра
+         */
+        void discard() throws SQLException {
+            insertRoute.clearBatch();
+            pending = 0;
+            batch = null;
+            for (RoutePoint point : createdPoints) {
+                routePointRepository.evictCached(point.getId());
+            }
+        }
+    }
+}
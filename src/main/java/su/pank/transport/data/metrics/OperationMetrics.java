@@ -0,0 +1,78 @@
+package su.pank.transport.data.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Накопленные метрики одной операции репозитория с запуска приложения
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    void record(long nanos, long read, long written) {
+        latency.record(nanos);
+        if (read > 0) rowsRead.add(read);
+        if (written > 0) rowsWritten.add(written);
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long getCalls() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRowsRead() {
+        return rowsRead.sum();
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMeanNanos() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.getValueAtPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMaxNanos() / NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,22 @@
+package su.pank.transport.data.metrics;
+
+/**
+ * Метрики одной операции в JMX (jconsole, VisualVM): su.pank.transport:type=RepositoryMetrics,name=...
+ */
+public interface OperationMetricsMXBean {
+    long getCalls();
+
+    long getErrors();
+
+    long getRowsRead();
+
+    long getRowsWritten();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+}
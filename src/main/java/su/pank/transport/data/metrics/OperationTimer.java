@@ -0,0 +1,34 @@
+package su.pank.transport.data.metrics;
+
+/**
+ * Замер одного вызова операции: время от start() до close() и число строк.
+ * Используется в try-with-resources вокруг тела метода репозитория
+ */
+public final class OperationTimer implements AutoCloseable {
+    private final RepositoryMetrics owner;
+    private final OperationMetrics operation;
+    private final long startNanos;
+    private long rowsRead;
+    private long rowsWritten;
+
+    OperationTimer(RepositoryMetrics owner, OperationMetrics operation) {
+        this.owner = owner;
+        this.operation = operation;
+        this.startNanos = System.nanoTime();
+    }
+
+    public void rowsRead(long rows) {
+        rowsRead += rows;
+    }
+
+    public void rowsWritten(long rows) {
+        rowsWritten += rows;
+    }
+
+    @Override
+    public void close() {
+        long elapsed = System.nanoTime() - startNanos;
+        operation.record(elapsed, rowsRead, rowsWritten);
+        owner.checkSlow(operation, elapsed, rowsRead, rowsWritten);
+    }
+}
@@ -0,0 +1,154 @@
+package su.pank.transport.data.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики операций репозиториев и пула соединений: гистограммы задержек, число вызовов,
+ * ошибок и строк. Доступны через JMX, по запросу периодически выводятся в лог, а операции дольше
+ * порога попадают в журнал медленных запросов
+ */
+public class RepositoryMetrics implements AutoCloseable {
+    public static final long DEFAULT_SLOW_MILLIS = 200;
+    public static final long DEFAULT_LOG_INTERVAL_SECONDS = 0;
+    private static final String JMX_DOMAIN = "su.pank.transport";
+
+    private static RepositoryMetrics instance;
+
+    private final ConcurrentHashMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final long slowNanos;
+    private final MBeanServer mbeanServer;
+    private ScheduledExecutorService logScheduler;
+    // Вывод в лог был включён: тогда и close() печатает итоговую таблицу
+    private boolean logging;
+
+    /**
+     * @param slowMillis порог журнала медленных запросов, 0 - журнал выключен
+     * @param registerMBeans регистрировать операции в платформенном MBeanServer
+     */
+    public RepositoryMetrics(long slowMillis, boolean registerMBeans) {
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMillis);
+        this.mbeanServer = registerMBeans ? ManagementFactory.getPlatformMBeanServer() : null;
+    }
+
+    /**
+     * Общие метрики приложения: порог и интервал лога из системных свойств, операции видны в JMX
+     */
+    public static synchronized RepositoryMetrics getInstance() {
+        if (instance == null) {
+            instance = new RepositoryMetrics(
+                    Long.getLong("transport.metrics.slowMillis", DEFAULT_SLOW_MILLIS), true);
+            instance.startLogging(
+                    Long.getLong("transport.metrics.logIntervalSeconds", DEFAULT_LOG_INTERVAL_SECONDS));
+        }
+        return instance;
+    }
+
+    public OperationTimer start(String operation) {
+        return new OperationTimer(this, operation(operation));
+    }
+
+    /**
+     * Ошибка операции: вызывается из обработчика исключения, время вызова уже записано таймером
+     */
+    public void recordError(String operation) {
+        operation(operation).recordError();
+    }
+
+    public OperationMetrics get(String operation) {
+        return operations.get(operation);
+    }
+
+    public List<OperationMetrics> getOperations() {
+        List<OperationMetrics> result = new ArrayList<>(operations.values());
+        result.sort(Comparator.comparing(OperationMetrics::getName));
+        return result;
+    }
+
+    private OperationMetrics operation(String name) {
+        OperationMetrics metrics = operations.get(name);
+        if (metrics != null) {
+            return metrics;
+        }
+        return operations.computeIfAbsent(name, key -> {
+            OperationMetrics created = new OperationMetrics(key);
+            register(created);
+            return created;
+        });
+    }
+
+    private void register(OperationMetrics metrics) {
+        if (mbeanServer == null) return;
+        try {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=RepositoryMetrics,name="
+                    + ObjectName.quote(metrics.getName()));
+            if (!mbeanServer.isRegistered(objectName)) {
+                mbeanServer.registerMBean(metrics, objectName);
+            }
+        } catch (JMException e) {
+            System.err.println("Ошибка регистрации метрик в JMX: " + e.getMessage());
+        }
+    }
+
+    void checkSlow(OperationMetrics operation, long nanos, long rowsRead, long rowsWritten) {
+        if (slowNanos <= 0 || nanos < slowNanos) return;
+        System.err.printf("Медленная операция %s: %.1f мс, строк прочитано %d, записано %d%n",
+                operation.getName(), nanos / 1_000_000.0, rowsRead, rowsWritten);
+    }
+
+    /**
+     * Периодический вывод метрик в лог в фоновом потоке
+     * @param intervalSeconds 0 - не выводить
+     */
+    public synchronized void startLogging(long intervalSeconds) {
+        if (intervalSeconds <= 0 || logScheduler != null) return;
+        logging = true;
+        logScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "repository-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logScheduler.scheduleAtFixedRate(this::log, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Таблица метрик всех операций в стандартный вывод
+     */
+    public void log() {
+        List<OperationMetrics> snapshot = getOperations();
+        if (snapshot.isEmpty()) return;
+        StringBuilder sb = new StringBuilder("Метрики репозиториев:\n");
+        sb.append(String.format("  %-44s %8s %7s %10s %10s %9s %9s %9s %9s%n", "операция", "вызовы", "ошибки",
+                "прочитано", "записано", "сред. мс", "p50 мс", "p99 мс", "макс. мс"));
+        for (OperationMetrics metrics : snapshot) {
+            sb.append(String.format("  %-44s %8d %7d %10d %10d %9.2f %9.2f %9.2f %9.2f%n",
+                    metrics.getName(), metrics.getCalls(), metrics.getErrors(),
+                    metrics.getRowsRead(), metrics.getRowsWritten(), metrics.getMeanMillis(),
+                    metrics.getP50Millis(), metrics.getP99Millis(), metrics.getMaxMillis()));
+        }
+        System.out.print(sb);
+    }
+
+    /**
+     * Остановка периодического вывода и итоговая таблица метрик, если вывод был включён
+     */
+    @Override
+    public synchronized void close() {
+        if (logScheduler != null) {
+            logScheduler.shutdownNow();
+            logScheduler = null;
+        }
+        if (logging) {
+            log();
+        }
+    }
+}
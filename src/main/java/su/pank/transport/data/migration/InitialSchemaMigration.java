@@ -0,0 +1,264 @@
+package su.pank.transport.data.migration;
+
+import su.pank.transport.data.PooledConnection;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Версия 1: схема на момент появления версий. Базы без user_version уже могут содержать
+ * часть таблиц в одном из старых форматов, поэтому шаги идемпотентны и старый формат
+ * категорий (таблица route_categories) переводится на маски
+ */
+class InitialSchemaMigration implements Migration {
+    // Триггеры route_summary, в том числе удалённые вместе с route_categories
+    private static final String[] SUMMARY_TRIGGERS = {
+            "route_summary_route_insert", "route_summary_route_update", "route_summary_route_delete",
+            "route_summary_category_insert", "route_summary_category_delete",
+            "route_summary_point_update", "route_summary_point_delete"
+    };
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    // Заполняет categories значениями по умолчанию и пересчитывает биты
+    @Override
+    public boolean changesCategories() {
+        return true;
+    }
+
+    @Override
+    public String getDescription() {
+        return "исходная схема";
+    }
+
+    @Override
+    public void apply(PooledConnection conn) throws SQLException {
+        String createRoutePoints = """
+                    CREATE TABLE IF NOT EXISTS route_points (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        locality VARCHAR(100) NOT NULL,
+                        district VARCHAR(200) NOT NULL,
+                        description TEXT NOT NULL
+                    )
+                """;
+
+        String createCategories = """
+                    CREATE TABLE IF NOT EXISTS categories (
+                        code VARCHAR(1) PRIMARY KEY,
+                        name VARCHAR(50) NOT NULL,
+                        bg_color VARCHAR(7) NOT NULL CHECK(LENGTH(bg_color) = 7 AND bg_color LIKE '#%'),
+                        text_color VARCHAR(7) NOT NULL CHECK(LENGTH(text_color) = 7 AND text_color LIKE '#%'),
+                        bit INTEGER NOT NULL CHECK(bit >= 0 AND bit < 32)
+                    )
+                """;
+
+        String createRoutes = """
+                    CREATE TABLE IF NOT EXISTS routes (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        route_number INTEGER NOT NULL CHECK(route_number >= 1 AND route_number <= 999),
+                        start_point_id INTEGER NOT NULL,
+                        end_point_id INTEGER NOT NULL,
+                        category_mask INTEGER NOT NULL DEFAULT 0,
+                        FOREIGN KEY(start_point_id) REFERENCES route_points(id),
+                        FOREIGN KEY(end_point_id) REFERENCES route_points(id),
+                        UNIQUE(route_number)
+                    )
+                """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(createRoutePoints);
+            stmt.execute(createCategories);
+            stmt.execute(createRoutes);
+            migrateRouteCategories(stmt);
+            stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS categories_bit ON categories(bit)");
+            createRouteSummary(stmt);
+            insertDefaultDepots(conn, stmt);
+            insertDefaultCategories(conn, stmt);
+        }
+    }
+
+    /**
+     * Перевод базы старого формата на маски: категории маршрутов из таблицы route_categories
+     * переносятся в routes.category_mask, производные view, сводка и её триггеры пересоздаются
+     */
+    private static void migrateRouteCategories(Statement stmt) throws SQLException {
+        boolean legacyCategories = !hasColumn(stmt, "categories", "bit");
+        boolean legacyRoutes = !hasColumn(stmt, "routes", "category_mask");
+        boolean legacyLinks = hasTable(stmt, "route_categories");
+        if (!legacyCategories && !legacyRoutes && !legacyLinks) return;
+
+        if (legacyCategories) {
+            // Биты раздаются в порядке таблицы
+            stmt.execute("ALTER TABLE categories ADD COLUMN bit INTEGER NOT NULL DEFAULT 0");
+            stmt.executeUpdate("""
+                    UPDATE categories SET bit =
+                        (SELECT COUNT(*) FROM categories c WHERE c.rowid < categories.rowid)
+                    """);
+        }
+        if (legacyRoutes) {
+            stmt.execute("ALTER TABLE routes ADD COLUMN category_mask INTEGER NOT NULL DEFAULT 0");
+        }
+        if (legacyLinks) {
+            // Пары (маршрут, категория) уникальны, поэтому сумма битов равна их OR
+            stmt.executeUpdate("""
+                    UPDATE routes SET category_mask = (
+                        SELECT COALESCE(SUM(1 << c.bit), 0)
+                        FROM route_categories rc
+                        JOIN categories c ON c.code = rc.category_code
+                        WHERE rc.route_id = routes.id)
+                    """);
+            stmt.execute("DROP TABLE route_categories");
+        }
+        stmt.execute("DROP VIEW IF EXISTS full_route_info");
+        for (String trigger : SUMMARY_TRIGGERS) {
+            stmt.execute("DROP TRIGGER IF EXISTS " + trigger);
+        }
+        stmt.execute("DROP TABLE IF EXISTS route_summary");
+    }
+
+    private static boolean hasColumn(Statement stmt, String table, String column) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equals(rs.getString("name"))) return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasTable(Statement stmt, String table) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = '" + table + "'")) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * route_summary - денормализованная копия маршрутов с точками, которую поддерживают триггеры.
+     * Полная загрузка каталога читает её одним последовательным проходом без JOIN.
+     * Требует существующей таблицы route_points
+     */
+    private static void createRouteSummary(Statement stmt) throws SQLException {
+        boolean exists = hasTable(stmt, "route_summary");
+
+        String createSummary = """
+                    CREATE TABLE IF NOT EXISTS route_summary (
+                        route_id INTEGER PRIMARY KEY,
+                        route_number INTEGER NOT NULL,
+                        start_point_id INTEGER NOT NULL,
+                        start_locality VARCHAR(100) NOT NULL,
+                        start_district VARCHAR(200) NOT NULL,
+                        start_description TEXT NOT NULL,
+                        end_point_id INTEGER NOT NULL,
+                        end_locality VARCHAR(100) NOT NULL,
+                        end_district VARCHAR(200) NOT NULL,
+                        end_description TEXT NOT NULL,
+                        category_mask INTEGER NOT NULL DEFAULT 0
+                    )
+                """;
+
+        String summarySelect = """
+                    SELECT r.id, r.route_number,
+                           sp.id, sp.locality, sp.district, sp.description,
+                           ep.id, ep.locality, ep.district, ep.description,
+                           r.category_mask
+                    FROM routes r
+                    JOIN route_points sp ON r.start_point_id = sp.id
+                    JOIN route_points ep ON r.end_point_id = ep.id
+                """;
+
+        // Строка сводки для маршрута NEW.id
+        String summaryRow = "INSERT OR REPLACE INTO route_summary " + summarySelect + " WHERE r.id = NEW.id;";
+
+        String[] triggers = {
+                "CREATE TRIGGER IF NOT EXISTS route_summary_route_insert AFTER INSERT ON routes BEGIN "
+                        + summaryRow + " END",
+                "CREATE TRIGGER IF NOT EXISTS route_summary_route_update AFTER UPDATE ON routes BEGIN "
+                        + "DELETE FROM route_summary WHERE route_id = OLD.id; "
+                        + summaryRow + " END",
+                "CREATE TRIGGER IF NOT EXISTS route_summary_route_delete AFTER DELETE ON routes BEGIN "
+                        + "DELETE FROM route_summary WHERE route_id = OLD.id; END",
+                """
+                    CREATE TRIGGER IF NOT EXISTS route_summary_point_update AFTER UPDATE ON route_points BEGIN
+                        UPDATE route_summary SET start_locality = NEW.locality, start_district = NEW.district,
+                            start_description = NEW.description WHERE start_point_id = NEW.id;
+                        UPDATE route_summary SET end_locality = NEW.locality, end_district = NEW.district,
+                            end_description = NEW.description WHERE end_point_id = NEW.id;
+                    END
+                """,
+                // Маршрут без одной из точек не показывается, как и при JOIN
+                """
+                    CREATE TRIGGER IF NOT EXISTS route_summary_point_delete AFTER DELETE ON route_points BEGIN
+                        DELETE FROM route_summary WHERE start_point_id = OLD.id OR end_point_id = OLD.id;
+                    END
+                """
+        };
+
+        stmt.execute(createSummary);
+        for (String trigger : triggers) {
+            stmt.execute(trigger);
+        }
+
+        if (!exists) {
+            // Первый запуск с новой схемой: заполнение из существующих данных
+            stmt.executeUpdate("INSERT INTO route_summary " + summarySelect);
+        }
+    }
+
+    private static void insertDefaultDepots(PooledConnection conn, Statement stmt) throws SQLException {
+        if (!isEmpty(stmt, "route_points")) return;
+        String[][] depots = {
+                {"Санкт-Петербург", "Фрунзенский район", "Автобусный парк № 1"},
+                {"Санкт-Петербург", "Приморский район", "Автобусный парк № 2"},
+                {"Санкт-Петербург", "Невский район", "Автобусный парк № 3"},
+                {"Санкт-Петербург", "Кировский район", "Автобусный парк № 5"},
+                {"Санкт-Петербург", "Красногвардейский район", "Автобусный парк № 6"},
+                {"Санкт-Петербург", "Московский район", "Автобусный парк № 7"},
+                {"Колпино", "Колпинский район", "Колпинский автобусный парк"}
+        };
+
+        String insertSql = "INSERT INTO route_points (locality, district, description) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = conn.getConnection().prepareStatement(insertSql)) {
+            for (String[] depot : depots) {
+                pstmt.setString(1, depot[0]);
+                pstmt.setString(2, depot[1]);
+                pstmt.setString(3, depot[2]);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private static void insertDefaultCategories(PooledConnection conn, Statement stmt) throws SQLException {
+        if (!isEmpty(stmt, "categories")) return;
+        String[][] categories = {
+                {"K", "Коммерческий", "#FF6B6B", "#721C24"},
+                {"С", "Экспресс", "#4ECDC4", "#0E6251"},
+                {"M", "Ночной", "#45B7D1", "#1B4F72"}
+        };
+
+        String insertSql = "INSERT INTO categories (code, name, bg_color, text_color, bit) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.getConnection().prepareStatement(insertSql)) {
+            for (int i = 0; i < categories.length; i++) {
+                String[] cat = categories[i];
+                pstmt.setString(1, cat[0]);
+                pstmt.setString(2, cat[1]);
+                pstmt.setString(3, cat[2]);
+                pstmt.setString(4, cat[3]);
+                pstmt.setInt(5, i);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private static boolean isEmpty(Statement stmt, String table) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT EXISTS (SELECT 1 FROM " + table + ")")) {
+            return rs.next() && rs.getInt(1) == 0;
+        }
+    }
+}
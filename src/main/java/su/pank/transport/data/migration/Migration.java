@@ -0,0 +1,26 @@
+package su.pank.transport.data.migration;
+
+import su.pank.transport.data.PooledConnection;
+
+import java.sql.SQLException;
+
+/**
+ * Один шаг схемы базы. Выполняется ровно один раз внутри общей транзакции миграций
+ */
+public interface Migration {
+    /**
+     * @return номер версии схемы после шага, версии идут подряд с 1
+     */
+    int getVersion();
+
+    String getDescription();
+
+    void apply(PooledConnection conn) throws SQLException;
+
+    /**
+     * @return true, если шаг пишет в таблицу categories и кэш категорий нужно сбросить
+     */
+    default boolean changesCategories() {
+        return false;
+    }
+}
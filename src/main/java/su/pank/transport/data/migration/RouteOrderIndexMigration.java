@@ -0,0 +1,28 @@
+package su.pank.transport.data.migration;
+
+import su.pank.transport.data.PooledConnection;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Версия 3: индекс для постраничной загрузки route_summary по ключу (route_number, route_id)
+ */
+class RouteOrderIndexMigration implements Migration {
+    @Override
+    public int getVersion() {
+        return 3;
+    }
+
+    @Override
+    public String getDescription() {
+        return "индекс порядка маршрутов";
+    }
+
+    @Override
+    public void apply(PooledConnection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS route_summary_number ON route_summary(route_number, route_id)");
+        }
+    }
+}
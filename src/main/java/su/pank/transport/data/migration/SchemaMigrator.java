@@ -0,0 +1,111 @@
+package su.pank.transport.data.migration;
+
+import su.pank.transport.data.ConnectionProvider;
+import su.pank.transport.data.PooledConnection;
+import su.pank.transport.data.UnitOfWork;
+import su.pank.transport.data.repository.CategoryRepository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Версии схемы по PRAGMA user_version. На актуальной базе запуск стоит одного чтения PRAGMA,
+ * недостающие миграции применяются по порядку в одной транзакции вместе с новой версией
+ */
+public class SchemaMigrator {
+    // Время миграции в stdout, выключено по умолчанию
+    private static final boolean LOG_MIGRATIONS = Boolean.getBoolean("transport.metrics.startup");
+
+    private static SchemaMigrator instance;
+
+    private final ConnectionProvider connectionProvider;
+    // Кэш категорий, который сбрасывается после миграций, меняющих categories; null - кэша нет
+    private final CategoryRepository categoryRepository;
+    private final Migration[] migrations;
+
+    public SchemaMigrator(ConnectionProvider connectionProvider) {
+        this(connectionProvider, (CategoryRepository) null);
+    }
+
+    public SchemaMigrator(ConnectionProvider connectionProvider, CategoryRepository categoryRepository) {
+        this(connectionProvider, categoryRepository, new InitialSchemaMigration(), new SecondaryIndexesMigration(),
+                new RouteOrderIndexMigration());
+    }
+
+    public SchemaMigrator(ConnectionProvider connectionProvider, Migration... migrations) {
+        this(connectionProvider, null, migrations);
+    }
+
+    public SchemaMigrator(ConnectionProvider connectionProvider, CategoryRepository categoryRepository,
+                          Migration... migrations) {
+        for (int i = 0; i < migrations.length; i++) {
+            if (migrations[i].getVersion() != i + 1) {
+                throw new IllegalArgumentException("Migration " + migrations[i].getDescription()
+                        + " has version " + migrations[i].getVersion() + ", expected " + (i + 1));
+            }
+        }
+        this.connectionProvider = connectionProvider;
+        this.categoryRepository = categoryRepository;
+        this.migrations = migrations.clone();
+    }
+
+    public static synchronized SchemaMigrator getInstance() {
+        if (instance == null) {
+            instance = new SchemaMigrator(ConnectionProvider.getInstance(), CategoryRepository.getInstance());
+        }
+        return instance;
+    }
+
+    public int getLatestVersion() {
+        return migrations.length;
+    }
+
+    /**
+     * Приведение базы к последней версии схемы
+     * @return версия схемы после миграции
+     */
+    public int migrate() throws SQLException {
+        int latest = getLatestVersion();
+        int current;
+        try (PooledConnection conn = connectionProvider.acquire();
+             Statement stmt = conn.createStatement()) {
+            current = readVersion(stmt);
+        }
+        if (current >= latest) {
+            // База из более новой версии приложения остаётся как есть
+            return current;
+        }
+
+        long start = System.nanoTime();
+        boolean categoriesChanged = false;
+        // Без commit() все применённые миграции откатываются при закрытии UnitOfWork
+        try (UnitOfWork work = connectionProvider.beginWork();
+             Statement stmt = work.getConnection().createStatement()) {
+            for (Migration migration : migrations) {
+                if (migration.getVersion() > current) {
+                    migration.apply(work.getConnection());
+                    categoriesChanged |= migration.changesCategories();
+                }
+            }
+            stmt.execute("PRAGMA user_version = " + latest);
+            work.commit();
+        } catch (SQLException | RuntimeException e) {
+            throw new SQLException("Ошибка миграции схемы с версии " + current + ": " + e.getMessage(), e);
+        }
+        if (categoriesChanged && categoryRepository != null) {
+            categoryRepository.invalidate();
+        }
+        if (LOG_MIGRATIONS) {
+            System.out.printf("Схема базы обновлена с версии %d до %d за %d мс%n",
+                    current, latest, (System.nanoTime() - start) / 1_000_000);
+        }
+        return latest;
+    }
+
+    private static int readVersion(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package su.pank.transport.data.migration;
+
+import su.pank.transport.data.PooledConnection;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Версия 2: индексы под поиск точки по всем трём полям, проверку использования депо
+ * маршрутами и триггеры route_summary, которые ищут строки сводки по id точки
+ */
+class SecondaryIndexesMigration implements Migration {
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    @Override
+    public String getDescription() {
+        return "вторичные индексы";
+    }
+
+    @Override
+    public void apply(PooledConnection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS route_points_lookup ON route_points(locality, district, description)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS routes_start_point ON routes(start_point_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS routes_end_point ON routes(end_point_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS route_summary_start_point ON route_summary(start_point_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS route_summary_end_point ON route_summary(end_point_id)");
+        }
+    }
+}
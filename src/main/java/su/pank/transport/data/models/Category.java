@@ -5,18 +5,24 @@ public class Category {
     private String name;
     private String bgColor;
     private String textColor;
+    // Номер бита категории в маске маршрута (0..31)
+    private int bit;
 
-    public Category(String code, String name, String bgColor, String textColor) {
+    public Category(String code, String name, String bgColor, String textColor, int bit) {
         if (!isValidHexColor(bgColor)) {
             throw new IllegalArgumentException("Invalid background color format: " + bgColor);
         }
         if (!isValidHexColor(textColor)) {
             throw new IllegalArgumentException("Invalid text color format: " + textColor);
         }
+        if (bit < 0 || bit >= Integer.SIZE) {
+            throw new IllegalArgumentException("Invalid category bit: " + bit);
+        }
         this.code = code;
         this.name = name;
         this.bgColor = bgColor;
         this.textColor = textColor;
+        this.bit = bit;
     }
 
     private boolean isValidHexColor(String color) {
@@ -34,4 +40,9 @@ public class Category {
 
     public String getTextColor() { return textColor; }
     public void setTextColor(String textColor) { this.textColor = textColor; }
+
+    public int getBit() { return bit; }
+    public void setBit(int bit) { this.bit = bit; }
+
+    public int getMask() { return 1 << bit; }
 }
\ No newline at end of file
@@ -1,115 +1,61 @@
 package su.pank.transport.data.models;
 
-
-import su.pank.transport.data.repository.CategoryRepository;
-
-public class Route {
-    private int id;
-    private int routeNumber;
-    private int startPointId;
-    private String startLocality;
-    private String startDistrict;
-    private String startDescription;
-    private int endPointId;
-    private String endLocality;
-    private String endDistrict;
-    private String endDescription;
-    private String[] specialCategories;
-    private RouteType routeType;
-
-    public Route(int id, int routeNumber, int startPointId, String startLocality, String startDistrict, String startDescription,
-                 int endPointId, String endLocality, String endDistrict, String endDescription, String specialCategory) {
+/**
+ * Маршрут. Неизменяемое значение: изменение маршрута - это новый объект из базы
+ */
+public final class Route {
+    private final int id;
+    private final int routeNumber;
+    // Точки общие для всех маршрутов одного депо (см. DepotRegistry)
+    private final RoutePoint startPoint;
+    private final RoutePoint endPoint;
+    // Категории маршрута битами, код категории по биту - в CategoryDictionary
+    private final int categoryMask;
+    private final RouteType routeType;
+
+    public Route(int id, int routeNumber, RoutePoint startPoint, RoutePoint endPoint, int categoryMask) {
         this.id = id;
         this.routeNumber = routeNumber;
-        this.startPointId = startPointId;
-        this.startLocality = startLocality;
-        this.startDistrict = startDistrict;
-        this.startDescription = startDescription;
-        this.endPointId = endPointId;
-        this.endLocality = endLocality;
-        this.endDistrict = endDistrict;
-        this.endDescription = endDescription;
-        this.specialCategories = specialCategory != null && !specialCategory.isEmpty() ?
-                specialCategory.split(",") : new String[0];
-        this.routeType = determineRouteType(routeNumber);
+        this.startPoint = startPoint;
+        this.endPoint = endPoint;
+        this.categoryMask = categoryMask;
+        this.routeType = RouteType.fromRouteNumber(routeNumber);
     }
 
-    private RouteType determineRouteType(int number) {
-        if (number >= 1 && number <= 199) return RouteType.URBAN;
-        else if (number >= 200 && number <= 299) return RouteType.MIXED;
-        else if (number >= 300 && number <= 399) return RouteType.SUBURBAN;
-        else if (number >= 400 && number <= 999) return RouteType.REGIONAL;
-        return RouteType.UNKNOWN;
+    /**
+     * @return тот же маршрут с другим id, например с id из базы вместо временного
+     */
+    public Route withId(int newId) {
+        return newId == id ? this : new Route(newId, routeNumber, startPoint, endPoint, categoryMask);
     }
 
-    // Геттеры и сеттеры
+    // Геттеры
     public int getId() { return id; }
-    public void setId(int id) { this.id = id; }
 
     public int getRouteNumber() { return routeNumber; }
-    public void setRouteNumber(int routeNumber) {
-        this.routeNumber = routeNumber;
-        this.routeType = determineRouteType(routeNumber);
-    }
-
-    public int getStartPointId() { return startPointId; }
-    public void setStartPointId(int startPointId) { this.startPointId = startPointId; }
-
-    public String getStartLocality() { return startLocality; }
-    public void setStartLocality(String startLocality) { this.startLocality = startLocality; }
-
-    public String getStartDistrict() { return startDistrict; }
-    public void setStartDistrict(String startDistrict) { this.startDistrict = startDistrict; }
-
-    public String getStartDescription() { return startDescription; }
-    public void setStartDescription(String startDescription) { this.startDescription = startDescription; }
-
-    public int getEndPointId() { return endPointId; }
-    public void setEndPointId(int endPointId) { this.endPointId = endPointId; }
 
-    public String getEndLocality() { return endLocality; }
-    public void setEndLocality(String endLocality) { this.endLocality = endLocality; }
+    public RoutePoint getStartPoint() { return startPoint; }
+    public int getStartPointId() { return startPoint.getId(); }
+    public String getStartLocality() { return startPoint.getLocality(); }
+    public String getStartDistrict() { return startPoint.getDistrict(); }
+    public String getStartDescription() { return startPoint.getDescription(); }
 
-    public String getEndDistrict() { return endDistrict; }
-    public void setEndDistrict(String endDistrict) { this.endDistrict = endDistrict; }
+    public RoutePoint getEndPoint() { return endPoint; }
+    public int getEndPointId() { return endPoint.getId(); }
+    public String getEndLocality() { return endPoint.getLocality(); }
+    public String getEndDistrict() { return endPoint.getDistrict(); }
+    public String getEndDescription() { return endPoint.getDescription(); }
 
-    public String getEndDescription() { return endDescription; }
-    public void setEndDescription(String endDescription) { this.endDescription = endDescription; }
+    public int getCategoryMask() { return categoryMask; }
 
-    public String[] getSpecialCategories() { return specialCategories; }
-    public void setSpecialCategories(String[] specialCategories) { this.specialCategories = specialCategories; }
-
-    public String getSpecialCategoryString() {
-        return String.join(",", specialCategories);
-    }
-
-    public String getRouteType() { return routeType.getDisplayName(); }
-
-    // Методы, связанные с UI (для совместимости, но идеально переместить в слой презентации)
-    public String getBadgeColor() {
-        return switch (routeType) {
-            case URBAN -> "#B8F1B9"; // Городской - Зеленый
-            case MIXED -> "#DFE0FF"; // Смешанный - Фиолетовый
-            case SUBURBAN -> "#F9E287"; // Пригородный - Желтый
-            case REGIONAL -> "#E3E9EA"; // Региональный - Серый
-            default -> "#E3E9EA"; // Неизвестный - Серый
-        };
+    /**
+     * @return true, если у маршрута есть все категории из mask
+     */
+    public boolean hasCategories(int mask) {
+        return (categoryMask & mask) == mask;
     }
 
-    public String getTextColor() {
-        return switch (routeType) {
-            case URBAN -> "#1E5127";
-            case MIXED -> "#3B4279";
-            case SUBURBAN -> "#534600";
-            default -> "#161D1D";
-        };
-    }
-
-    public String getCategoryColor(String category) {
-        return CategoryRepository.getCategoryBgColor(category);
-    }
+    public RouteType getType() { return routeType; }
 
-    public String getCategoryTextColor(String category) {
-        return CategoryRepository.getCategoryTextColor(category);
-    }
-}
\ No newline at end of file
+    public String getRouteType() { return routeType.getDisplayName(); }
+}
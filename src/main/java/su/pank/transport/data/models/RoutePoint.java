@@ -1,33 +1,60 @@
 package su.pank.transport.data.models;
 
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
+import java.util.Objects;
 
-public class RoutePoint {
-    private final IntegerProperty id;
-    private final StringProperty locality;
-    private final StringProperty district;
-    private final StringProperty description;
+/**
+ * Точка маршрута (депо). Неизменяемое значение без зависимостей от JavaFX
+ */
+public final class RoutePoint {
+    private final int id;
+    private final String locality;
+    private final String district;
+    private final String description;
+    // Строка "(пункт, район)" для ячеек таблицы: точка общая для всех маршрутов депо,
+    // поэтому строка собирается один раз на депо. Гонка безопасна, как у String.hash
+    private String location;
 
     public RoutePoint(int id, String locality, String district, String description) {
-        this.id = new SimpleIntegerProperty(id);
-        this.locality = new SimpleStringProperty(locality != null ? locality : "");
-        this.district = new SimpleStringProperty(district != null ? district : "");
-        this.description = new SimpleStringProperty(description != null ? description : "");
+        this.id = id;
+        this.locality = locality != null ? locality : "";
+        this.district = district != null ? district : "";
+        this.description = description != null ? description : "";
     }
 
-    public int getId() { return id.get(); }
-    public String getLocality() { return locality.get(); }
-    public void setLocality(String value) { locality.set(value); }
-    public String getDistrict() { return district.get(); }
-    public void setDistrict(String value) { district.set(value); }
-    public String getDescription() { return description.get(); }
-    public void setDescription(String value) { description.set(value); }
+    public int getId() { return id; }
+    public String getLocality() { return locality; }
+    public String getDistrict() { return district; }
+    public String getDescription() { return description; }
+
+    /**
+     * @return "(населённый пункт, район)", собирается при первом обращении
+     */
+    public String getLocation() {
+        String result = location;
+        if (result == null) {
+            result = "(" + locality + ", " + district + ")";
+            location = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RoutePoint other)) return false;
+        return id == other.id
+                && locality.equals(other.locality)
+                && district.equals(other.district)
+                && description.equals(other.description);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, locality, district, description);
+    }
 
     @Override
     public String toString() {
-        return description.get() + " (" + locality.get() + ", " + district.get() + ")";
+        return description + " " + getLocation();
     }
-}
\ No newline at end of file
+}
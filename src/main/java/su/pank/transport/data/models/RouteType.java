@@ -13,6 +13,17 @@ public enum RouteType {
         this.displayName = displayName;
     }
 
+    /**
+     * Тип маршрута определяется диапазоном номера
+     */
+    public static RouteType fromRouteNumber(int number) {
+        if (number >= 1 && number <= 199) return URBAN;
+        else if (number >= 200 && number <= 299) return MIXED;
+        else if (number >= 300 && number <= 399) return SUBURBAN;
+        else if (number >= 400 && number <= 999) return REGIONAL;
+        return UNKNOWN;
+    }
+
     public String getDisplayName() {
         return displayName;
     }
@@ -0,0 +1,91 @@
+package su.pank.transport.data.repository;
+
+import su.pank.transport.data.models.Category;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Неизменяемый снимок таблицы categories для поиска по коду без обращения к базе.
+ * Переводит коды категорий в биты маски маршрута и обратно
+ */
+public final class CategoryDictionary {
+    // Маска маршрута - int, поэтому категорий не больше 32
+    public static final int MAX_CATEGORIES = Integer.SIZE;
+
+    static final CategoryDictionary EMPTY = new CategoryDictionary(new Category[0]);
+
+    private final Category[] categories;
+    private final Map<String, Category> byCode;
+    private final Category[] byBit = new Category[MAX_CATEGORIES];
+
+    CategoryDictionary(Category[] categories) {
+        this.categories = categories.clone();
+        Map<String, Category> map = new HashMap<>(categories.length * 2);
+        for (Category category : this.categories) {
+            map.put(category.getCode(), category);
+            byBit[category.getBit()] = category;
+        }
+        this.byCode = map;
+    }
+
+    public Category get(String code) {
+        return code == null ? null : byCode.get(code);
+    }
+
+    /**
+     * @return категория с этим битом, null если бит не занят
+     */
+    public Category getByBit(int bit) {
+        return byBit[bit];
+    }
+
+    /**
+     * @return бит категории в маске, 0 для неизвестного кода
+     */
+    public int maskOf(String code) {
+        Category category = get(code);
+        return category != null ? category.getMask() : 0;
+    }
+
+    /**
+     * Маска по строке кодов через запятую. Неизвестные коды и повторы не влияют на результат
+     */
+    public int parseMask(String codes) {
+        if (codes == null || codes.isEmpty()) return 0;
+        int mask = 0;
+        int start = 0;
+        while (start <= codes.length()) {
+            int end = codes.indexOf(',', start);
+            if (end < 0) end = codes.length();
+            mask |= maskOf(codes.substring(start, end).trim());
+            start = end + 1;
+        }
+        return mask;
+    }
+
+    /**
+     * @return коды категорий маски через separator в порядке битов
+     */
+    public String format(int mask, String separator) {
+        StringBuilder sb = new StringBuilder();
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            Category category = byBit[Integer.numberOfTrailingZeros(rest)];
+            if (category == null) continue;
+            if (sb.length() > 0) sb.append(separator);
+            sb.append(category.getCode());
+        }
+        return sb.toString();
+    }
+
+    public int size() {
+        return categories.length;
+    }
+
+    /**
+     * @return копия массива категорий в порядке таблицы
+     */
+    public Category[] toArray() {
+        return categories.clone();
+    }
+}
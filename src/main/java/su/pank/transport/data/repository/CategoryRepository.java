@@ -1,58 +1,107 @@
 package su.pank.transport.data.repository;
 
-import su.pank.transport.data.DatabaseConfig;
+import su.pank.transport.data.ConnectionProvider;
+import su.pank.transport.data.PooledConnection;
+import su.pank.transport.data.metrics.OperationTimer;
+import su.pank.transport.data.metrics.RepositoryMetrics;
 import su.pank.transport.data.models.Category;
 
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Optional;
 
+/**
+ * Категории маршрутов. Таблица маленькая и меняется редко, поэтому держится в памяти
+ * целиком и перечитывается только после invalidate()
+ */
 public class CategoryRepository {
+    private static final String LOAD_OPERATION = "CategoryRepository.loadDictionary";
+
     private static CategoryRepository instance;
 
+    private final ConnectionProvider connectionProvider;
+    private final RepositoryMetrics metrics;
+    private volatile CategoryDictionary dictionary;
 
+    public CategoryRepository(ConnectionProvider connectionProvider) {
+        this.connectionProvider = connectionProvider;
+        this.metrics = connectionProvider.getMetrics();
+    }
 
     public Optional<Category> getCategoryByCode(String code) {
-        String sql = "SELECT code, name, bg_color, text_color FROM categories WHERE code = ?";
-
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, code);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return Optional.of(new Category(
-                        rs.getString("code"),
-                        rs.getString("name"),
-                        rs.getString("bg_color"),
-                        rs.getString("text_color")
-                 ));
-             }
-         } catch (SQLException e) {
-             System.err.println("Ошибка получения категории по коду: " + e.getMessage());
-         }
-         return Optional.empty();
+        return Optional.ofNullable(getDictionary().get(code));
     }
 
+    public Category[] getAllCategories() {
+        return getDictionary().toArray();
+    }
 
-
-    public static CategoryRepository getInstance() {
-        if (instance == null) {
-            instance = new CategoryRepository();
+    /**
+     * @return словарь категорий, при первом обращении загружается из базы
+     */
+    public CategoryDictionary getDictionary() {
+        CategoryDictionary current = dictionary;
+        if (current == null) {
+            synchronized (this) {
+                current = dictionary;
+                if (current == null) {
+                    current = loadDictionary();
+                    if (current != CategoryDictionary.EMPTY) {
+                        dictionary = current;
+                    }
+                }
+            }
         }
-        return instance;
+        return current;
+    }
+
+    /**
+     * Сброс словаря после изменения таблицы categories
+     */
+    public void invalidate() {
+        dictionary = null;
     }
 
-    public static String getCategoryBgColor(String code) {
-        return getInstance().getCategoryByCode(code)
-                .map(Category::getBgColor)
-                .orElse("#95A5A6"); // Серый по умолчанию
+    private CategoryDictionary loadDictionary() {
+        String countSql = "SELECT COUNT(*) FROM categories";
+        String sql = "SELECT code, name, bg_color, text_color, bit FROM categories";
+
+        try (OperationTimer timer = metrics.start(LOAD_OPERATION);
+             PooledConnection conn = connectionProvider.acquire()) {
+            int count = 0;
+            try (ResultSet rs = conn.prepare(countSql).executeQuery()) {
+                if (rs.next()) {
+                    count = rs.getInt(1);
+                }
+            }
+
+            Category[] categories = new Category[count];
+            int index = 0;
+            try (ResultSet rs = conn.prepare(sql).executeQuery()) {
+                while (rs.next() && index < count) {
+                    categories[index++] = new Category(
+                            rs.getString("code"),
+                            rs.getString("name"),
+                            rs.getString("bg_color"),
+                            rs.getString("text_color"),
+                            rs.getInt("bit")
+                    );
+                }
+            }
+            timer.rowsRead(index);
+            return new CategoryDictionary(Arrays.copyOf(categories, index));
+        } catch (SQLException e) {
+            // Пустой словарь не кэшируется, чтобы следующий запрос повторил загрузку
+            metrics.recordError(LOAD_OPERATION);
+            System.err.println("Ошибка получения категорий: " + e.getMessage());
+            return CategoryDictionary.EMPTY;
+        }
     }
 
-    public static String getCategoryTextColor(String code) {
-        return getInstance().getCategoryByCode(code)
-                .map(Category::getTextColor)
-                .orElse("#34495E"); // Темно-серый по умолчанию
+    public static synchronized CategoryRepository getInstance() {
+        if (instance == null) {
+            instance = new CategoryRepository(ConnectionProvider.getInstance());
+        }
+        return instance;
     }
-}
\ No newline at end of file
+}
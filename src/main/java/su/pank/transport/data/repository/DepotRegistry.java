@@ -0,0 +1,46 @@
+package su.pank.transport.data.repository;
+
+import su.pank.transport.data.models.RoutePoint;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Общие экземпляры точек маршрута по id. Маршруты к одному депо ссылаются на один объект
+ * RoutePoint, а не хранят свои копии строк. Точки в приложении не редактируются,
+ * поэтому по id точка однозначна до её удаления
+ */
+public class DepotRegistry {
+    private static DepotRegistry instance;
+
+    private final ConcurrentHashMap<Integer, RoutePoint> points = new ConcurrentHashMap<>();
+
+    public static synchronized DepotRegistry getInstance() {
+        if (instance == null) {
+            instance = new DepotRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * @return зарегистрированная точка, null если её ещё нет
+     */
+    public RoutePoint get(int pointId) {
+        return points.get(pointId);
+    }
+
+    /**
+     * @return уже зарегистрированная точка с тем же id или сама point
+     */
+    public RoutePoint intern(RoutePoint point) {
+        RoutePoint existing = points.putIfAbsent(point.getId(), point);
+        return existing != null ? existing : point;
+    }
+
+    public void remove(int pointId) {
+        points.remove(pointId);
+    }
+
+    public int size() {
+        return points.size();
+    }
+}
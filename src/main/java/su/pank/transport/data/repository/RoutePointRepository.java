@@ -1,152 +1,188 @@
 package su.pank.transport.data.repository;
 
-import su.pank.transport.data.DatabaseConfig;
+import su.pank.transport.data.ConnectionProvider;
+import su.pank.transport.data.PooledConnection;
+import su.pank.transport.data.metrics.OperationTimer;
+import su.pank.transport.data.metrics.RepositoryMetrics;
 import su.pank.transport.data.models.RoutePoint;
-import su.pank.transport.domain.SimpleLinkedList;
-import su.pank.transport.domain.LinkedList;
 
 import java.sql.*;
 
 public class RoutePointRepository {
-
-    public void initialize() {
-        createTables();
-        initializeDefaultDepots();
-    }
-
-    private void createTables() {
-        String createRoutePoints = """
-            CREATE TABLE IF NOT EXISTS route_points (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                locality VARCHAR(100) NOT NULL,
-                district VARCHAR(200) NOT NULL,
-                description TEXT NOT NULL
-            )
-        """;
-
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-              Statement stmt = conn.createStatement()) {
-             stmt.execute(createRoutePoints);
-         } catch (SQLException e) {
-             System.err.println("Ошибка создания таблицы точек маршрута: " + e.getMessage());
-         }
+    private static final String GET_ALL_OPERATION = "RoutePointRepository.getAllRoutePoints";
+    private static final String EXISTS_OPERATION = "RoutePointRepository.exists";
+    private static final String ADD_OPERATION = "RoutePointRepository.addRoutePoint";
+    private static final String IN_USE_OPERATION = "RoutePointRepository.isInUse";
+    private static final String DELETE_OPERATION = "RoutePointRepository.deleteRoutePoint";
+
+    private final ConnectionProvider connectionProvider;
+    private final DepotRegistry depotRegistry;
+    private final RepositoryMetrics metrics;
+
+    public RoutePointRepository() {
+        this(ConnectionProvider.getInstance(), DepotRegistry.getInstance());
     }
 
-    private void initializeDefaultDepots() {
-        String checkSql = "SELECT COUNT(*) FROM route_points";
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(checkSql)) {
-
-            if (rs.next() && rs.getInt(1) == 0) {
-                String[][] depots = {
-                        {"Санкт-Петербург", "Фрунзенский район", "Автобусный парк № 1"},
-                        {"Санкт-Петербург", "Приморский район", "Автобусный парк № 2"},
-                        {"Санкт-Петербург", "Невский район", "Автобусный парк № 3"},
-                        {"Санкт-Петербург", "Кировский район", "Автобусный парк № 5"},
-                        {"Санкт-Петербург", "Красногвардейский район", "Автобусный парк № 6"},
-                        {"Санкт-Петербург", "Московский район", "Автобусный парк № 7"},
-                        {"Колпино", "Колпинский район", "Колпинский автобусный парк"}
-                };
-
-                String insertSql = "INSERT INTO route_points (locality, district, description) VALUES (?, ?, ?)";
-                try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
-                    for (String[] depot : depots) {
-                        pstmt.setString(1, depot[0]);
-                        pstmt.setString(2, depot[1]);
-                        pstmt.setString(3, depot[2]);
-                        pstmt.executeUpdate();
-                    }
-                 }
-             }
-         } catch (SQLException e) {
-             System.err.println("Ошибка инициализации депо: " + e.getMessage());
-         }
+    public RoutePointRepository(ConnectionProvider connectionProvider, DepotRegistry depotRegistry) {
+        this.connectionProvider = connectionProvider;
+        this.depotRegistry = depotRegistry;
+        this.metrics = connectionProvider.getMetrics();
     }
 
     public RoutePoint[] getAllRoutePoints() {
         String countSql = "SELECT COUNT(*) FROM route_points";
-        int count = 0;
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(countSql)) {
-            if (rs.next()) {
-                count = rs.getInt(1);
-            }
-         } catch (SQLException e) {
-             System.err.println("Ошибка подсчета точек маршрута: " + e.getMessage());
-             return new RoutePoint[0];
-         }
-
-        RoutePoint[] points = new RoutePoint[count];
         String sql = "SELECT id, locality, district, description FROM route_points";
 
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            int index = 0;
-            while (rs.next() && index < count) {
-                points[index++] = new RoutePoint(
-                        rs.getInt("id"),
-                        rs.getString("locality"),
-                        rs.getString("district"),
-                        rs.getString("description")
-                 );
-             }
+        try (OperationTimer timer = metrics.start(GET_ALL_OPERATION);
+             PooledConnection conn = connectionProvider.acquire()) {
+            int count = 0;
+            try (ResultSet rs = conn.prepare(countSql).executeQuery()) {
+                if (rs.next()) {
+                    count = rs.getInt(1);
+                }
+            }
+
+            RoutePoint[] points = new RoutePoint[count];
+            try (ResultSet rs = conn.prepare(sql).executeQuery()) {
+                int index = 0;
+                while (rs.next() && index < count) {
+                    points[index++] = depotRegistry.intern(new RoutePoint(
+                            rs.getInt("id"),
+                            rs.getString("locality"),
+                            rs.getString("district"),
+                            rs.getString("description")
+                     ));
+                 }
+            }
+            timer.rowsRead(points.length);
+            return points;
          } catch (SQLException e) {
+             metrics.recordError(GET_ALL_OPERATION);
              System.err.println("Ошибка получения точек маршрута: " + e.getMessage());
+             return new RoutePoint[0];
          }
-        return points;
     }
 
     public boolean exists(RoutePoint point) {
-        String sql = "SELECT COUNT(*) FROM route_points WHERE locality = ? AND district = ? AND description = ?";
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, point.getLocality());
-            pstmt.setString(2, point.getDistrict());
-            pstmt.setString(3, point.getDescription());
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1) > 0;
-                }
-            }
+        try (OperationTimer timer = metrics.start(EXISTS_OPERATION);
+             PooledConnection conn = connectionProvider.acquire()) {
+            return exists(conn, point);
         } catch (SQLException e) {
+            metrics.recordError(EXISTS_OPERATION);
             System.err.println("Ошибка проверки существования точки маршрута: " + e.getMessage());
         }
         return false;
     }
 
-    public boolean addRoutePoint(RoutePoint point) {
-        String sql = "INSERT INTO route_points (locality, district, description) VALUES (?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-             pstmt.setString(1, point.getLocality());
-             pstmt.setString(2, point.getDistrict());
-             pstmt.setString(3, point.getDescription());
-             pstmt.executeUpdate();
-             return true;
+    /**
+     * Проверка на соединении вызывающего: видит ещё не зафиксированные записи его транзакции
+     */
+    public boolean exists(PooledConnection conn, RoutePoint point) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM route_points WHERE locality = ? AND district = ? AND description = ?";
+        PreparedStatement pstmt = conn.prepare(sql);
+        pstmt.setString(1, point.getLocality());
+        pstmt.setString(2, point.getDistrict());
+        pstmt.setString(3, point.getDescription());
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() && rs.getInt(1) > 0;
+        }
+    }
+
+    /**
+     * Добавление точки
+     * @return сохранённая точка с id из базы, null при ошибке
+     */
+    public RoutePoint addRoutePoint(RoutePoint point) {
+        try (OperationTimer timer = metrics.start(ADD_OPERATION);
+             PooledConnection conn = connectionProvider.acquire()) {
+            RoutePoint saved = addRoutePoint(conn, point);
+            timer.rowsWritten(1);
+            return saved;
          } catch (SQLException e) {
+             metrics.recordError(ADD_OPERATION);
              System.err.println("Ошибка добавления точки маршрута: " + e.getMessage());
-             return false;
+             return null;
          }
     }
 
+    /**
+     * Добавление точки на соединении вызывающего, например внутри транзакции импорта
+     * @return сохранённая точка с id из базы
+     */
+    public RoutePoint addRoutePoint(PooledConnection conn, RoutePoint point) throws SQLException {
+        String sql = "INSERT INTO route_points (locality, district, description) VALUES (?, ?, ?) RETURNING id";
+        PreparedStatement pstmt = conn.prepare(sql);
+        pstmt.setString(1, point.getLocality());
+        pstmt.setString(2, point.getDistrict());
+        pstmt.setString(3, point.getDescription());
+        try (ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("Insert did not return a route point id");
+            }
+            return depotRegistry.intern(
+                    new RoutePoint(rs.getInt(1), point.getLocality(), point.getDistrict(), point.getDescription()));
+        }
+    }
+
+    /**
+     * Забыть точку в общем реестре, например после отката транзакции, в которой она создана:
+     * SQLite может выдать тот же id другой точке
+     */
+    public void evictCached(int pointId) {
+        depotRegistry.remove(pointId);
+    }
+
+    /**
+     * @return true, если точка - начало или конец хотя бы одного маршрута
+     */
+    public boolean isInUse(int pointId) throws SQLException {
+        try (OperationTimer timer = metrics.start(IN_USE_OPERATION);
+             PooledConnection conn = connectionProvider.acquire()) {
+            return isInUse(conn, pointId);
+        } catch (SQLException e) {
+            metrics.recordError(IN_USE_OPERATION);
+            throw e;
+        }
+    }
+
+    /**
+     * Проверка на соединении вызывающего, например перед удалением в той же транзакции
+     */
+    public boolean isInUse(PooledConnection conn, int pointId) throws SQLException {
+        String sql = "SELECT EXISTS (SELECT 1 FROM routes WHERE start_point_id = ? OR end_point_id = ?)";
+        PreparedStatement pstmt = conn.prepare(sql);
+        pstmt.setInt(1, pointId);
+        pstmt.setInt(2, pointId);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() && rs.getInt(1) != 0;
+        }
+    }
+
     public boolean deleteRoutePoint(int pointId) {
-        String sql = "DELETE FROM route_points WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-             pstmt.setInt(1, pointId);
-             pstmt.executeUpdate();
+        try (OperationTimer timer = metrics.start(DELETE_OPERATION);
+             PooledConnection conn = connectionProvider.acquire()) {
+             timer.rowsWritten(deleteRoutePoint(conn, pointId));
              return true;
          } catch (SQLException e) {
+             metrics.recordError(DELETE_OPERATION);
              System.err.println("Ошибка удаления точки маршрута: " + e.getMessage());
              return false;
          }
     }
 
+    /**
+     * Удаление точки на соединении вызывающего
+     * @return число удалённых строк
+     */
+    public int deleteRoutePoint(PooledConnection conn, int pointId) throws SQLException {
+        PreparedStatement pstmt = conn.prepare("DELETE FROM route_points WHERE id = ?");
+        pstmt.setInt(1, pointId);
+        int deleted = pstmt.executeUpdate();
+        depotRegistry.remove(pointId);
+        return deleted;
+    }
+
     public void close() {
-        // SQLite не требует явного закрытия базы данных
+        // Соединения принадлежат общему ConnectionProvider и закрываются вместе с ним
     }
-}
\ No newline at end of file
+}
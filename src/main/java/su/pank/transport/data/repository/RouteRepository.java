@@ -1,285 +1,295 @@
 package su.pank.transport.data.repository;
 
-import su.pank.transport.data.DatabaseConfig;
+import su.pank.transport.data.ConnectionProvider;
+import su.pank.transport.data.PooledConnection;
+import su.pank.transport.data.UnitOfWork;
+import su.pank.transport.data.metrics.OperationTimer;
+import su.pank.transport.data.metrics.RepositoryMetrics;
 import su.pank.transport.data.models.Category;
 import su.pank.transport.data.models.Route;
+import su.pank.transport.data.models.RoutePoint;
 import su.pank.transport.domain.RouteLinkedList;
+import su.pank.transport.jfr.RouteLoadEvent;
 
 import java.sql.*;
+import java.util.Arrays;
 
 public class RouteRepository {
-
-    public void initialize() {
-        createTables();
-        initializeDefaultCategories();
-    }
-
-    private void createTables() {
-        String createCategories = """
-                    CREATE TABLE IF NOT EXISTS categories (
-                        code VARCHAR(1) PRIMARY KEY,
-                        name VARCHAR(50) NOT NULL,
-                        bg_color VARCHAR(7) NOT NULL CHECK(LENGTH(bg_color) = 7 AND bg_color LIKE '#%'),
-                        text_color VARCHAR(7) NOT NULL CHECK(LENGTH(text_color) = 7 AND text_color LIKE '#%')
-                    )
-                """;
-
-        String createRouteCategories = """
-                    CREATE TABLE IF NOT EXISTS route_categories (
-                        route_id INTEGER NOT NULL,
-                        category_code VARCHAR(1) NOT NULL,
-                        PRIMARY KEY(route_id, category_code),
-                        FOREIGN KEY(route_id) REFERENCES routes(id),
-                        FOREIGN KEY(category_code) REFERENCES categories(code)
-                    )
-                """;
-
-        String createRoutes = """
-                    CREATE TABLE IF NOT EXISTS routes (
-                        id INTEGER PRIMARY KEY AUTOINCREMENT,
-                        route_number INTEGER NOT NULL CHECK(route_number >= 1 AND route_number <= 999),
-                        start_point_id INTEGER NOT NULL,
-                        end_point_id INTEGER NOT NULL,
-                        FOREIGN KEY(start_point_id) REFERENCES route_points(id),
-                        FOREIGN KEY(end_point_id) REFERENCES route_points(id),
-                        UNIQUE(route_number)
-                    )
-                """;
-
-        String dropFullRouteInfoView = "DROP VIEW IF EXISTS full_route_info";
-
-        String createFullRouteInfoView = """
-                    CREATE VIEW full_route_info AS
-                    SELECT
-                        r.id AS route_id,
-                        r.route_number,
-                        sp.id AS start_point_id,
-                        sp.locality AS start_locality,
-                        sp.district AS start_district,
-                        sp.description AS start_description,
-                        ep.id AS end_point_id,
-                        ep.locality AS end_locality,
-                        ep.district AS end_district,
-                        ep.description AS end_description,
-                        GROUP_CONCAT(rc.category_code, ',') AS category_codes
-                    FROM routes r
-                    JOIN route_points sp ON r.start_point_id = sp.id
-                    JOIN route_points ep ON r.end_point_id = ep.id
-                    LEFT JOIN route_categories rc ON r.id = rc.route_id
-                    GROUP BY r.id, r.route_number, sp.id, sp.locality, sp.district, sp.description, ep.id, ep.locality, ep.district, ep.description
-                """;
-
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(createCategories);
-            stmt.execute(createRoutes);
-            stmt.execute(createRouteCategories);
-            stmt.execute(dropFullRouteInfoView);
-            stmt.execute(createFullRouteInfoView);
-         } catch (SQLException e) {
-             System.err.println("Ошибка создания таблиц базы данных: " + e.getMessage());
-         }
+    private static final String GET_ALL_OPERATION = "RouteRepository.getAllRoutes";
+    private static final String GET_PAGE_OPERATION = "RouteRepository.getRoutesPage";
+    private static final String ADD_OPERATION = "RouteRepository.addRoute";
+    private static final String UPDATE_OPERATION = "RouteRepository.updateRoute";
+    private static final String DELETE_OPERATION = "RouteRepository.deleteRoute";
+    private static final String UPDATE_CATEGORIES_OPERATION = "RouteRepository.updateRouteCategories";
+    private static final String WITH_CATEGORIES_OPERATION = "RouteRepository.getRoutesWithCategories";
+    private static final String NUMBER_EXISTS_OPERATION = "RouteRepository.isRouteNumberExists";
+
+    private final ConnectionProvider connectionProvider;
+    private final CategoryRepository categoryRepository;
+    private final DepotRegistry depotRegistry;
+    private final RepositoryMetrics metrics;
+
+    public RouteRepository() {
+        this(ConnectionProvider.getInstance(), CategoryRepository.getInstance(), DepotRegistry.getInstance());
     }
 
-    private void initializeDefaultCategories() {
-        String checkSql = "SELECT COUNT(*) FROM categories";
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(checkSql)) {
-
-            if (rs.next() && rs.getInt(1) == 0) {
-                String[][] categories = {
-                        {"K", "Коммерческий", "#FF6B6B", "#721C24"},
-                        {"С", "Экспресс", "#4ECDC4", "#0E6251"},
-                        {"M", "Ночной", "#45B7D1", "#1B4F72"}
-                };
-
-                String insertSql = "INSERT INTO categories (code, name, bg_color, text_color) VALUES (?, ?, ?, ?)";
-                try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
-                    for (String[] cat : categories) {
-                        pstmt.setString(1, cat[0]);
-                        pstmt.setString(2, cat[1]);
-                        pstmt.setString(3, cat[2]);
-                        pstmt.setString(4, cat[3]);
-                        pstmt.executeUpdate();
-                    }
-                 }
-             }
-         } catch (SQLException e) {
-             System.err.println("Ошибка инициализации категорий: " + e.getMessage());
-         }
+    public RouteRepository(ConnectionProvider connectionProvider, CategoryRepository categoryRepository,
+                           DepotRegistry depotRegistry) {
+        this.connectionProvider = connectionProvider;
+        this.categoryRepository = categoryRepository;
+        this.depotRegistry = depotRegistry;
+        this.metrics = connectionProvider.getMetrics();
     }
 
     public RouteLinkedList getAllRoutes() {
         RouteLinkedList routes = new RouteLinkedList();
-        String sql = "SELECT * FROM full_route_info";
+        String sql = "SELECT * FROM route_summary";
+        RouteLoadEvent event = new RouteLoadEvent();
+        event.begin();
 
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (OperationTimer timer = metrics.start(GET_ALL_OPERATION);
+             PooledConnection conn = connectionProvider.acquire();
+             ResultSet rs = conn.prepare(sql).executeQuery()) {
 
             while (rs.next()) {
-                String categoryCodes = rs.getString("category_codes");
-                if (categoryCodes == null) categoryCodes = "";
-                Route route = new Route(
-                        rs.getInt("route_id"),
-                        rs.getInt("route_number"),
-                        rs.getInt("start_point_id"),
-                        rs.getString("start_locality"),
-                        rs.getString("start_district"),
-                        rs.getString("start_description"),
-                        rs.getInt("end_point_id"),
-                        rs.getString("end_locality"),
-                        rs.getString("end_district"),
-                        rs.getString("end_description"),
-                        categoryCodes
-                );
-                 routes.add(route);
+                 routes.add(mapRoute(rs));
              }
+             timer.rowsRead(routes.size());
          } catch (SQLException e) {
+             metrics.recordError(GET_ALL_OPERATION);
              System.err.println("Ошибка получения маршрутов: " + e.getMessage());
          }
+        event.rows = routes.size();
+        event.commit();
         return routes;
     }
 
-    public boolean addRoute(Route route) {
-        String sql = "INSERT INTO routes (route_number, start_point_id, end_point_id) VALUES (?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, route.getRouteNumber());
-            pstmt.setInt(2, route.getStartPointId());
-            pstmt.setInt(3, route.getEndPointId());
-            int affectedRows = pstmt.executeUpdate();
+    /**
+     * Страница маршрутов по ключу (номер, id): следующие limit маршрутов после заданного.
+     * Для первой страницы передаются нули. Стоимость страницы не зависит от её положения в каталоге
+     * @return маршруты по возрастанию номера, меньше limit - это последняя страница
+     */
+    public Route[] getRoutesPage(int afterRouteNumber, int afterRouteId, int limit) {
+        String sql = """
+                SELECT * FROM route_summary
+                WHERE (route_number, route_id) > (?, ?)
+                ORDER BY route_number, route_id
+                LIMIT ?
+                """;
+        Route[] page = new Route[limit];
+        int count = 0;
+        RouteLoadEvent event = new RouteLoadEvent();
+        event.begin();
+        try (OperationTimer timer = metrics.start(GET_PAGE_OPERATION);
+             PooledConnection conn = connectionProvider.acquire()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setInt(1, afterRouteNumber);
+            pstmt.setInt(2, afterRouteId);
+            pstmt.setInt(3, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next() && count < limit) {
+                    page[count++] = mapRoute(rs);
+                }
+            }
+            timer.rowsRead(count);
+        } catch (SQLException e) {
+            metrics.recordError(GET_PAGE_OPERATION);
+            System.err.println("Ошибка получения страницы маршрутов: " + e.getMessage());
+        }
+        event.page = true;
+        event.afterRouteNumber = afterRouteNumber;
+        event.rows = count;
+        event.commit();
+        return count == limit ? page : Arrays.copyOf(page, count);
+    }
 
-            if (affectedRows > 0) {
-                try (Statement stmt = conn.createStatement();
-                    ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
+    private Route mapRoute(ResultSet rs) throws SQLException {
+        return new Route(
+                rs.getInt("route_id"),
+                rs.getInt("route_number"),
+                resolvePoint(rs, rs.getInt("start_point_id"), "start_locality", "start_district", "start_description"),
+                resolvePoint(rs, rs.getInt("end_point_id"), "end_locality", "end_district", "end_description"),
+                rs.getInt("category_mask")
+        );
+    }
 
+    // Строки точки читаются из строки выборки, только если депо ещё не зарегистрировано
+    private RoutePoint resolvePoint(ResultSet rs, int pointId, String localityColumn, String districtColumn,
+                                    String descriptionColumn) throws SQLException {
+        RoutePoint point = depotRegistry.get(pointId);
+        if (point != null) {
+            return point;
+        }
+        return depotRegistry.intern(new RoutePoint(pointId, rs.getString(localityColumn),
+                rs.getString(districtColumn), rs.getString(descriptionColumn)));
+    }
 
-                    // Добавление специальных категорий к опр. маршруту
-                    if (rs.next()) {
-                        int routeId = rs.getInt(1);
-                        if (route.getSpecialCategories().length > 0) {
-                            addRouteCategories(routeId, route.getSpecialCategories());
-                        }
-                        return true;
-                     }
-                 }
-             }
-             return false;
-         } catch (SQLException e) {
-             System.err.println("Ошибка добавления маршрута: " + e.getMessage());
-             return false;
-         }
+    // Чтение маршрута после записи: точки и категории в том виде, в каком они лежат в базе
+    private Route findRoute(PooledConnection conn, int routeId) throws SQLException {
+        PreparedStatement pstmt = conn.prepare("SELECT * FROM route_summary WHERE route_id = ?");
+        pstmt.setInt(1, routeId);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? mapRoute(rs) : null;
+        }
     }
 
-    public boolean updateRoute(Route route) {
-        String sql = "UPDATE routes SET route_number = ?, start_point_id = ?, end_point_id = ? WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, route.getRouteNumber());
-            pstmt.setInt(2, route.getStartPointId());
-            pstmt.setInt(3, route.getEndPointId());
-            pstmt.setInt(4, route.getId());
-            int affectedRows = pstmt.executeUpdate();
+    /**
+     * Добавление маршрута
+     * @return сохранённый маршрут с id и категориями из базы, null при ошибке
+     */
+    public Route addRoute(Route route) {
+        try (OperationTimer timer = metrics.start(ADD_OPERATION);
+             UnitOfWork work = connectionProvider.beginWork()) {
+            Route saved = addRoute(work.getConnection(), route);
+            work.commit();
+            timer.rowsWritten(1);
+            return saved;
+        } catch (SQLException e) {
+            metrics.recordError(ADD_OPERATION);
+            System.err.println("Ошибка добавления маршрута: " + e.getMessage());
+            return null;
+        }
+    }
 
-            if (affectedRows > 0) {
-                // Обновление категорий
-                updateRouteCategories(route.getId(), route.getSpecialCategories());
-                return true;
+    /**
+     * Добавление маршрута на соединении вызывающего, например внутри UnitOfWork.
+     * Id возвращается самой вставкой, маршрут перечитывается в той же транзакции.
+     * Если перечитать не удалось, выбрасывается SQLException, чтобы транзакция откатилась
+     * @return сохранённый маршрут из базы
+     */
+    public Route addRoute(PooledConnection conn, Route route) throws SQLException {
+        String sql = "INSERT INTO routes (route_number, start_point_id, end_point_id, category_mask) VALUES (?, ?, ?, ?) RETURNING id";
+        PreparedStatement pstmt = conn.prepare(sql);
+        pstmt.setInt(1, route.getRouteNumber());
+        pstmt.setInt(2, route.getStartPointId());
+        pstmt.setInt(3, route.getEndPointId());
+        pstmt.setInt(4, route.getCategoryMask());
+        int routeId;
+        try (ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("Insert did not return a route id");
             }
-             return false;
-         } catch (SQLException e) {
-             System.err.println("Ошибка обновления маршрута: " + e.getMessage());
-             return false;
-         }
+            routeId = rs.getInt(1);
+        }
+        return readBack(conn, routeId);
     }
 
-    public boolean deleteRoute(int routeId) {
-        String sql = "DELETE FROM routes WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-             pstmt.setInt(1, routeId);
-             pstmt.executeUpdate();
-             return true;
-         } catch (SQLException e) {
-             System.err.println("Ошибка удаления маршрута: " + e.getMessage());
-             return false;
-         }
+    /**
+     * Обновление маршрута по id
+     * @return сохранённый маршрут из базы, null при ошибке или если маршрута нет
+     */
+    public Route updateRoute(Route route) {
+        try (OperationTimer timer = metrics.start(UPDATE_OPERATION);
+             UnitOfWork work = connectionProvider.beginWork()) {
+            Route saved = updateRoute(work.getConnection(), route);
+            work.commit();
+            timer.rowsWritten(saved != null ? 1 : 0);
+            return saved;
+        } catch (SQLException e) {
+            metrics.recordError(UPDATE_OPERATION);
+            System.err.println("Ошибка обновления маршрута: " + e.getMessage());
+            return null;
+        }
     }
 
-    public Category[] getAllCategories() {
-        String countSql = "SELECT COUNT(*) FROM categories";
-        int count = 0;
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(countSql)) {
-            if (rs.next()) {
-                count = rs.getInt(1);
-            }
-         } catch (SQLException e) {
-             System.err.println("Ошибка подсчета категорий: " + e.getMessage());
-             return new Category[0];
-         }
+    /**
+     * Обновление маршрута на соединении вызывающего
+     * @return сохранённый маршрут из базы, null если маршрута с таким id нет
+     */
+    public Route updateRoute(PooledConnection conn, Route route) throws SQLException {
+        String sql = "UPDATE routes SET route_number = ?, start_point_id = ?, end_point_id = ?, category_mask = ? WHERE id = ?";
+        PreparedStatement pstmt = conn.prepare(sql);
+        pstmt.setInt(1, route.getRouteNumber());
+        pstmt.setInt(2, route.getStartPointId());
+        pstmt.setInt(3, route.getEndPointId());
+        pstmt.setInt(4, route.getCategoryMask());
+        pstmt.setInt(5, route.getId());
+        return pstmt.executeUpdate() > 0 ? readBack(conn, route.getId()) : null;
+    }
 
-        Category[] categories = new Category[count];
-        String sql = "SELECT code, name, bg_color, text_color FROM categories";
+    // Записанный маршрут не виден в route_summary, например нет строки его точки:
+    // такая запись не должна зафиксироваться молча
+    private Route readBack(PooledConnection conn, int routeId) throws SQLException {
+        Route saved = findRoute(conn, routeId);
+        if (saved == null) {
+            throw new SQLException("Saved route " + routeId + " is missing from route_summary");
+        }
+        return saved;
+    }
 
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+    /**
+     * Удаление маршрута. Маршрут, которого уже нет в базе, тоже считается удалённым
+     */
+    public boolean deleteRoute(int routeId) {
+        try (OperationTimer timer = metrics.start(DELETE_OPERATION);
+             PooledConnection conn = connectionProvider.acquire()) {
+            timer.rowsWritten(deleteRoute(conn, routeId) ? 1 : 0);
+            return true;
+        } catch (SQLException e) {
+            metrics.recordError(DELETE_OPERATION);
+            System.err.println("Ошибка удаления маршрута: " + e.getMessage());
+            return false;
+        }
+    }
 
-            int index = 0;
-            while (rs.next() && index < count) {
-                categories[index++] = new Category(
-                        rs.getString("code"),
-                        rs.getString("name"),
-                        rs.getString("bg_color"),
-                        rs.getString("text_color")
-                 );
-             }
-         } catch (SQLException e) {
-             System.err.println("Ошибка получения категорий: " + e.getMessage());
-         }
-        return categories;
+    /**
+     * Удаление маршрута на соединении вызывающего
+     * @return true, если маршрут был в базе
+     */
+    public boolean deleteRoute(PooledConnection conn, int routeId) throws SQLException {
+        PreparedStatement pstmt = conn.prepare("DELETE FROM routes WHERE id = ?");
+        pstmt.setInt(1, routeId);
+        return pstmt.executeUpdate() > 0;
     }
 
-    public boolean addRouteCategories(int routeId, String[] categoryCodes) {
-        String sql = "INSERT INTO route_categories (route_id, category_code) VALUES (?, ?)";
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            for (String code : categoryCodes) {
-                pstmt.setInt(1, routeId);
-                pstmt.setString(2, code);
-                pstmt.executeUpdate();
-            }
-             return true;
-         } catch (SQLException e) {
-             System.err.println("Ошибка добавления категорий маршрута: " + e.getMessage());
-             return false;
-         }
+    public Category[] getAllCategories() {
+        return categoryRepository.getAllCategories();
     }
 
-    public boolean updateRouteCategories(int routeId, String[] categoryCodes) {
-        // Удаление из смежной
-        String deleteSql = "DELETE FROM route_categories WHERE route_id = ?";
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-             PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
-            deleteStmt.setInt(1, routeId);
-            deleteStmt.executeUpdate();
+    public boolean updateRouteCategories(int routeId, int categoryMask) {
+        try (OperationTimer timer = metrics.start(UPDATE_CATEGORIES_OPERATION);
+             PooledConnection conn = connectionProvider.acquire()) {
+            PreparedStatement pstmt = conn.prepare("UPDATE routes SET category_mask = ? WHERE id = ?");
+            pstmt.setInt(1, categoryMask);
+            pstmt.setInt(2, routeId);
+            timer.rowsWritten(pstmt.executeUpdate());
+            return true;
          } catch (SQLException e) {
+             metrics.recordError(UPDATE_CATEGORIES_OPERATION);
              System.err.println("Ошибка обновления категорий маршрута: " + e.getMessage());
              return false;
          }
+    }
 
-        // Добавление в смежную
-        return addRouteCategories(routeId, categoryCodes);
+    /**
+     * Маршруты, у которых есть все категории из маски
+     */
+    public RouteLinkedList getRoutesWithCategories(int categoryMask) {
+        RouteLinkedList routes = new RouteLinkedList();
+        String sql = "SELECT * FROM route_summary WHERE category_mask & ? = ?";
+        try (OperationTimer timer = metrics.start(WITH_CATEGORIES_OPERATION);
+             PooledConnection conn = connectionProvider.acquire()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setInt(1, categoryMask);
+            pstmt.setInt(2, categoryMask);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    routes.add(mapRoute(rs));
+                }
+            }
+            timer.rowsRead(routes.size());
+        } catch (SQLException e) {
+            metrics.recordError(WITH_CATEGORIES_OPERATION);
+            System.err.println("Ошибка получения маршрутов по категориям: " + e.getMessage());
+        }
+        return routes;
     }
 
     public boolean isRouteNumberExists(int routeNumber) {
         String sql = "SELECT COUNT(*) FROM routes WHERE route_number = ?";
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (OperationTimer timer = metrics.start(NUMBER_EXISTS_OPERATION);
+             PooledConnection conn = connectionProvider.acquire()) {
+            PreparedStatement pstmt = conn.prepare(sql);
             pstmt.setInt(1, routeNumber);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -287,6 +297,7 @@ public class RouteRepository {
                 }
             }
         } catch (SQLException e) {
+            metrics.recordError(NUMBER_EXISTS_OPERATION);
             System.err.println("Ошибка проверки существования маршрута: " + e.getMessage());
         }
         return false;
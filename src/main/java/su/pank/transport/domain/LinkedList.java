@@ -1,9 +1,18 @@
 package su.pank.transport.domain;
 
-public interface LinkedList<T> {
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+public interface LinkedList<T> extends Iterable<T> {
     void add(T item);
     T get(int index);
     int size();
     boolean isEmpty();
+    void clear();
     T[] toArray();
-}
\ No newline at end of file
+
+    @Override
+    default Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED | Spliterator.SIZED);
+    }
+}
@@ -0,0 +1,49 @@
+package su.pank.transport.domain;
+
+import su.pank.transport.data.models.Route;
+
+/**
+ * Одно изменение маршрута после записи в базу: вставка, замена или удаление.
+ * Применяется к загруженному списку точечно, без перезагрузки всех маршрутов
+ */
+public final class RouteChange {
+    public enum Type {
+        INSERT,
+        REPLACE,
+        REMOVE
+    }
+
+    private final Type type;
+    private final Route route;
+
+    private RouteChange(Type type, Route route) {
+        this.type = type;
+        this.route = route;
+    }
+
+    /**
+     * @param route сохранённый маршрут с id из базы
+     */
+    public static RouteChange insert(Route route) {
+        return new RouteChange(Type.INSERT, route);
+    }
+
+    /**
+     * @param route новое состояние маршрута, ищется по id
+     */
+    public static RouteChange replace(Route route) {
+        return new RouteChange(Type.REPLACE, route);
+    }
+
+    public static RouteChange remove(Route route) {
+        return new RouteChange(Type.REMOVE, route);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Route getRoute() {
+        return route;
+    }
+}
@@ -2,27 +2,107 @@ package su.pank.transport.domain;
 
 import su.pank.transport.data.models.Route;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class RouteLinkedList extends SimpleLinkedList<Route> {
+    private final RouteNumberIndex numberIndex = new RouteNumberIndex();
+    // Узлы по id маршрута: замена элемента без обхода списка. Сортировка переставляет
+    // связи, но не сами узлы, поэтому карта остаётся верной
+    private final Map<Integer, Node<Route>> nodesById = new HashMap<>();
 
     public RouteLinkedList() {
         super(Route.class);
     }
 
+    @Override
+    public void add(Route route) {
+        super.add(route);
+        numberIndex.put(route);
+        nodesById.put(route.getId(), tail);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        numberIndex.clear();
+        nodesById.clear();
+    }
+
+    /**
+     * Замена маршрута с тем же id на новое состояние за O(1), порядок списка не меняется
+     * @return false, если маршрута с таким id нет
+     */
+    public boolean replace(Route route) {
+        return replace(route.getId(), route);
+    }
+
+    /**
+     * Замена маршрута routeId на route, id которого может отличаться: например временный id
+     * ещё не записанного маршрута меняется на id из базы. Позиция в списке сохраняется
+     * @return false, если маршрута с routeId нет
+     */
+    public boolean replace(int routeId, Route route) {
+        Node<Route> node = nodesById.get(routeId);
+        if (node == null) return false;
+        numberIndex.remove(node.data);
+        node.data = route;
+        numberIndex.put(route);
+        if (routeId != route.getId()) {
+            nodesById.remove(routeId);
+            nodesById.put(route.getId(), node);
+        }
+        return true;
+    }
+
+    /**
+     * Применение изменения после записи в базу
+     * @return false, если изменение не к чему применить
+     */
+    public boolean apply(RouteChange change) {
+        Route route = change.getRoute();
+        return switch (change.getType()) {
+            case INSERT -> {
+                add(route);
+                yield true;
+            }
+            case REPLACE -> replace(route);
+            case REMOVE -> remove(route);
+        };
+    }
+
+    public Route findById(int routeId) {
+        Node<Route> node = nodesById.get(routeId);
+        return node != null ? node.data : null;
+    }
+
     // Удаление элемента
     public boolean remove(Route route) {
         if (head == null) return false;
 
         if (head.data.getId() == route.getId()) {
+            numberIndex.remove(head.data);
+            nodesById.remove(route.getId());
             head = head.next;
+            if (head == null) {
+                tail = null;
+            }
             size--;
+            structureChanged();
             return true;
         }
 
         Node<Route> current = head;
         while (current.next != null) {
             if (current.next.data.getId() == route.getId()) {
+                numberIndex.remove(current.next.data);
+                nodesById.remove(route.getId());
+                if (current.next == tail) {
+                    tail = current;
+                }
                 current.next = current.next.next;
                 size--;
+                structureChanged();
                 return true;
             }
             current = current.next;
@@ -30,9 +110,13 @@ public class RouteLinkedList extends SimpleLinkedList<Route> {
         return false;
     }
 
-    public void clear() {
-        head = null;
-        size = 0;
+    // Поиск по номеру маршрута через индекс, без обхода списка
+    public Route findByRouteNumber(int routeNumber) {
+        return numberIndex.get(routeNumber);
+    }
+
+    public RouteNumberIndex getNumberIndex() {
+        return numberIndex;
     }
 
     // Линейный поиск по номеру маршрута
@@ -47,33 +131,45 @@ public class RouteLinkedList extends SimpleLinkedList<Route> {
         return null;
     }
 
-    // Сортировка вставками по номеру маршрута
-    public void insertionSort() {
-        if (head == null || head.next == null) return;
-
-        Node<Route> sorted = null;
+    // Маршруты, у которых есть все категории из маски: одна проверка AND на узел
+    public RouteLinkedList filterByCategories(int categoryMask) {
+        RouteLinkedList result = new RouteLinkedList();
         Node<Route> current = head;
-
         while (current != null) {
-            Node<Route> next = current.next;
-            sorted = sortedInsert(sorted, current);
-            current = next;
+            if (current.data.hasCategories(categoryMask)) {
+                result.add(current.data);
+            }
+            current = current.next;
         }
-        head = sorted;
+        return result;
     }
 
-    private Node<Route> sortedInsert(Node<Route> sorted, Node<Route> newNode) {
-        if (sorted == null || sorted.data.getRouteNumber() >= newNode.data.getRouteNumber()) {
-            newNode.next = sorted;
-            return newNode;
-        }
+    /**
+     * Сортировка по нескольким полям через примитивные ключи {@link RouteSorter}.
+     * Переставляются сами узлы, а не ищутся по id, поэтому nodesById не перестраивается
+     * и список не теряет элементы, даже если id повторяются
+     */
+    @SuppressWarnings("unchecked")
+    public void sort(RouteSorter.Criterion... criteria) {
+        if (size < 2 || criteria.length == 0) return;
 
-        Node<Route> current = sorted;
-        while (current.next != null && current.next.data.getRouteNumber() < newNode.data.getRouteNumber()) {
+        Node<Route>[] nodes = new Node[size];
+        Route[] routes = new Route[size];
+        Node<Route> current = head;
+        for (int i = 0; i < size; i++) {
+            nodes[i] = current;
+            routes[i] = current.data;
             current = current.next;
         }
-        newNode.next = current.next;
-        current.next = newNode;
-        return sorted;
+        int[] order = RouteSorter.order(routes, criteria);
+        Node<Route> last = nodes[order[0]];
+        head = last;
+        for (int i = 1; i < order.length; i++) {
+            last.next = nodes[order[i]];
+            last = last.next;
+        }
+        last.next = null;
+        tail = last;
+        structureChanged();
     }
-}
\ No newline at end of file
+}
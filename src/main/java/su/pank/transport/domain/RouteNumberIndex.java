@@ -0,0 +1,74 @@
+package su.pank.transport.domain;
+
+import su.pank.transport.data.models.Route;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Прямая адресация маршрутов по номеру. Номера ограничены 1..999 (CHECK в схеме),
+ * поэтому индекс - массив на 1000 ячеек и битовая карта занятых номеров
+ */
+public class RouteNumberIndex {
+    public static final int MIN_ROUTE_NUMBER = 1;
+    public static final int MAX_ROUTE_NUMBER = 999;
+
+    private final Route[] byNumber = new Route[MAX_ROUTE_NUMBER + 1];
+    private final BitSet occupied = new BitSet(MAX_ROUTE_NUMBER + 1);
+
+    public static boolean isValidNumber(int routeNumber) {
+        return routeNumber >= MIN_ROUTE_NUMBER && routeNumber <= MAX_ROUTE_NUMBER;
+    }
+
+    public void put(Route route) {
+        int number = route.getRouteNumber();
+        if (!isValidNumber(number)) return;
+        byNumber[number] = route;
+        occupied.set(number);
+    }
+
+    /**
+     * Удаление из индекса, только если номер всё ещё занят этим же маршрутом
+     */
+    public void remove(Route route) {
+        int number = route.getRouteNumber();
+        if (!isValidNumber(number)) return;
+        Route current = byNumber[number];
+        if (current != null && current.getId() == route.getId()) {
+            byNumber[number] = null;
+            occupied.clear(number);
+        }
+    }
+
+    public Route get(int routeNumber) {
+        return isValidNumber(routeNumber) ? byNumber[routeNumber] : null;
+    }
+
+    public boolean contains(int routeNumber) {
+        return isValidNumber(routeNumber) && occupied.get(routeNumber);
+    }
+
+    /**
+     * @return наименьший свободный номер, -1 если все номера заняты
+     */
+    public int nextFreeNumber() {
+        return nextFreeNumber(MIN_ROUTE_NUMBER);
+    }
+
+    /**
+     * @return наименьший свободный номер не меньше from, -1 если таких нет
+     */
+    public int nextFreeNumber(int from) {
+        int free = occupied.nextClearBit(Math.max(from, MIN_ROUTE_NUMBER));
+        return free <= MAX_ROUTE_NUMBER ? free : -1;
+    }
+
+    public int count() {
+        return occupied.cardinality();
+    }
+
+    public void clear() {
+        Arrays.fill(byNumber, null);
+        occupied.clear();
+    }
+}
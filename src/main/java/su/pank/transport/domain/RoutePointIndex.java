@@ -0,0 +1,39 @@
+package su.pank.transport.domain;
+
+import su.pank.transport.data.models.RoutePoint;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Хэш-индекс точек маршрута по составному ключу (описание, населённый пункт, район)
+ */
+public class RoutePointIndex {
+    private final Map<Key, RoutePoint> points;
+
+    public RoutePointIndex(RoutePoint[] initialPoints) {
+        this.points = new HashMap<>(Math.max(16, initialPoints.length * 2));
+        for (RoutePoint point : initialPoints) {
+            points.putIfAbsent(keyOf(point), point);
+        }
+    }
+
+    public RoutePoint find(String description, String locality, String district) {
+        return points.get(new Key(description, locality, district));
+    }
+
+    public void put(RoutePoint point) {
+        points.put(keyOf(point), point);
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    private static Key keyOf(RoutePoint point) {
+        return new Key(point.getDescription(), point.getLocality(), point.getDistrict());
+    }
+
+    private record Key(String description, String locality, String district) {
+    }
+}
@@ -0,0 +1,13 @@
+package su.pank.transport.domain;
+
+/**
+ * Поля, по которым сортируются маршруты
+ */
+public enum RouteSortKey {
+    NUMBER,
+    TYPE,
+    START_POINT,
+    END_POINT,
+    // Сначала маршруты с меньшим числом категорий, затем по битам категорий
+    CATEGORY
+}
@@ -0,0 +1,217 @@
+package su.pank.transport.domain;
+
+import su.pank.transport.data.models.Route;
+import su.pank.transport.data.models.RoutePoint;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Устойчивая сортировка маршрутов по нескольким полям.
+ * Каждое поле один раз переводится в плотный ранг int, после чего сравниваются только числа:
+ * ранги нескольких полей и исходная позиция упаковываются в один long и сортируются как примитивы.
+ * Позиция в младших битах делает все ключи разными и сохраняет порядок равных маршрутов
+ */
+public final class RouteSorter {
+    // С этого размера long[] сортируется параллельно
+    static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    private static final Collator COLLATOR = Collator.getInstance(new Locale("ru"));
+
+    private RouteSorter() {
+    }
+
+    /**
+     * Одно поле сортировки и направление
+     */
+    public static final class Criterion {
+        private final RouteSortKey key;
+        private final boolean descending;
+
+        public Criterion(RouteSortKey key, boolean descending) {
+            this.key = key;
+            this.descending = descending;
+        }
+
+        public static Criterion ascending(RouteSortKey key) {
+            return new Criterion(key, false);
+        }
+
+        public RouteSortKey getKey() { return key; }
+
+        public boolean isDescending() { return descending; }
+
+        @Override
+        public String toString() {
+            return descending ? key + " desc" : key.toString();
+        }
+    }
+
+    /**
+     * @return новый массив маршрутов в порядке criteria, первое поле главное
+     */
+    public static Route[] sort(Route[] routes, Criterion... criteria) {
+        int[] order = order(routes, criteria);
+        Route[] sorted = new Route[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = routes[order[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * @return индексы routes в порядке criteria: order[i] - позиция i-го маршрута в routes
+     */
+    static int[] order(Route[] routes, Criterion... criteria) {
+        int n = routes.length;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        if (n < 2 || criteria.length == 0) return order;
+
+        int[][] ranks = new int[criteria.length][];
+        int[] widths = new int[criteria.length];
+        for (int c = 0; c < criteria.length; c++) {
+            int[] rank = new int[n];
+            int distinct = denseRank(rawKeys(routes, criteria[c].getKey()), rank);
+            if (criteria[c].isDescending()) {
+                for (int i = 0; i < n; i++) {
+                    rank[i] = distinct - 1 - rank[i];
+                }
+            }
+            ranks[c] = rank;
+            widths[c] = bitsFor(distinct - 1);
+        }
+
+        // Поразрядно с младшего поля: каждый проход устойчив, поэтому старшие поля сохраняют
+        // порядок, заданный младшими. В один проход идёт столько полей, сколько влезает в long
+        int positionBits = bitsFor(n - 1);
+        long positionMask = (1L << positionBits) - 1;
+        long[] packed = new long[n];
+        int last = criteria.length - 1;
+        while (last >= 0) {
+            int first = last;
+            int bits = positionBits + widths[last];
+            while (first > 0 && bits + widths[first - 1] <= Long.SIZE - 1) {
+                first--;
+                bits += widths[first];
+            }
+            for (int i = 0; i < n; i++) {
+                int route = order[i];
+                long key = 0;
+                for (int c = first; c <= last; c++) {
+                    key = (key << widths[c]) | ranks[c][route];
+                }
+                packed[i] = (key << positionBits) | i;
+            }
+            if (n >= PARALLEL_THRESHOLD) {
+                Arrays.parallelSort(packed);
+            } else {
+                Arrays.sort(packed);
+            }
+            int[] next = new int[n];
+            for (int i = 0; i < n; i++) {
+                next[i] = order[(int) (packed[i] & positionMask)];
+            }
+            order = next;
+            last = first - 1;
+        }
+        return order;
+    }
+
+    // Значение поля, порядок которого совпадает с порядком сортировки
+    private static long[] rawKeys(Route[] routes, RouteSortKey key) {
+        long[] raw = new long[routes.length];
+        switch (key) {
+            case NUMBER -> {
+                for (int i = 0; i < routes.length; i++) raw[i] = routes[i].getRouteNumber();
+            }
+            case TYPE -> {
+                for (int i = 0; i < routes.length; i++) raw[i] = routes[i].getType().ordinal();
+            }
+            case START_POINT, END_POINT -> {
+                boolean start = key == RouteSortKey.START_POINT;
+                // Депо немного: строки сравниваются один раз на депо, а не на каждый маршрут
+                Map<Integer, Integer> pointRank = pointRanks(routes, start);
+                for (int i = 0; i < routes.length; i++) {
+                    RoutePoint point = start ? routes[i].getStartPoint() : routes[i].getEndPoint();
+                    raw[i] = pointRank.get(point.getId());
+                }
+            }
+            case CATEGORY -> {
+                for (int i = 0; i < routes.length; i++) {
+                    int mask = routes[i].getCategoryMask();
+                    raw[i] = ((long) Integer.bitCount(mask) << Integer.SIZE) | Integer.toUnsignedLong(mask);
+                }
+            }
+        }
+        return raw;
+    }
+
+    // Порядок депо: описание, затем населённый пункт и район, по правилам русского алфавита
+    private static Map<Integer, Integer> pointRanks(Route[] routes, boolean start) {
+        Map<Integer, RoutePoint> points = new HashMap<>();
+        for (Route route : routes) {
+            RoutePoint point = start ? route.getStartPoint() : route.getEndPoint();
+            points.putIfAbsent(point.getId(), point);
+        }
+        RoutePoint[] distinct = points.values().toArray(new RoutePoint[0]);
+        CollationKey[][] keys = new CollationKey[distinct.length][];
+        Map<Integer, Integer> index = new HashMap<>(distinct.length * 2);
+        for (int i = 0; i < distinct.length; i++) {
+            keys[i] = new CollationKey[] {
+                    COLLATOR.getCollationKey(distinct[i].getDescription()),
+                    COLLATOR.getCollationKey(distinct[i].getLocality()),
+                    COLLATOR.getCollationKey(distinct[i].getDistrict())
+            };
+            index.put(distinct[i].getId(), i);
+        }
+        Integer[] byName = new Integer[distinct.length];
+        for (int i = 0; i < byName.length; i++) byName[i] = i;
+        Arrays.sort(byName, (a, b) -> {
+            for (int f = 0; f < 3; f++) {
+                int cmp = keys[a][f].compareTo(keys[b][f]);
+                if (cmp != 0) return cmp;
+            }
+            return Integer.compare(distinct[a].getId(), distinct[b].getId());
+        });
+        Map<Integer, Integer> rank = new HashMap<>(distinct.length * 2);
+        for (int r = 0; r < byName.length; r++) {
+            rank.put(distinct[byName[r]].getId(), r);
+        }
+        return rank;
+    }
+
+    /**
+     * Плотные ранги: равные значения получают один ранг, ранги идут подряд с нуля
+     * @return число различных значений
+     */
+    static int denseRank(long[] raw, int[] rank) {
+        long[] distinct = raw.clone();
+        if (distinct.length >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(distinct);
+        } else {
+            Arrays.sort(distinct);
+        }
+        int count = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (i == 0 || distinct[i] != distinct[count - 1]) {
+                distinct[count++] = distinct[i];
+            }
+        }
+        for (int i = 0; i < raw.length; i++) {
+            rank[i] = Arrays.binarySearch(distinct, 0, count, raw[i]);
+        }
+        return count;
+    }
+
+    // Число бит для значений 0..maxValue
+    private static int bitsFor(int maxValue) {
+        return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(maxValue));
+    }
+}
@@ -1,15 +1,31 @@
 package su.pank.transport.domain;
 
 import java.lang.reflect.Array;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
+/**
+ * Односвязный список с указателем на хвост и курсором последнего доступа:
+ * add() выполняется за O(1), последовательный get(i) по возрастанию индекса - за O(1)
+ */
 public class SimpleLinkedList<T> implements LinkedList<T> {
     protected Node<T> head;
+    protected Node<T> tail;
     protected int size;
+    // Счётчик структурных изменений для обнаружения модификации во время обхода
+    protected int modCount;
     private final Class<T> clazz;
 
+    // Курсор: узел и индекс последнего обращения через get()
+    private Node<T> cursorNode;
+    private int cursorIndex;
+
     public SimpleLinkedList(Class<T> clazz) {
         this.clazz = clazz;
         this.head = null;
+        this.tail = null;
         this.size = 0;
     }
 
@@ -19,22 +35,35 @@ public class SimpleLinkedList<T> implements LinkedList<T> {
         if (head == null) {
             head = newNode;
         } else {
-            Node<T> current = head;
-            while (current.next != null) {
-                current = current.next;
-            }
-            current.next = newNode;
+            tail.next = newNode;
         }
+        tail = newNode;
         size++;
+        modCount++;
     }
 
     @Override
     public T get(int index) {
         if (index < 0 || index >= size) return null;
-        Node<T> current = head;
-        for (int i = 0; i < index; i++) {
+        Node<T> current;
+        int i;
+        if (cursorNode != null && cursorIndex <= index) {
+            // Продолжаем от последней позиции вместо прохода с головы
+            current = cursorNode;
+            i = cursorIndex;
+        } else {
+            current = head;
+            i = 0;
+        }
+        if (index == size - 1) {
+            current = tail;
+            i = index;
+        }
+        for (; i < index; i++) {
             current = current.next;
         }
+        cursorNode = current;
+        cursorIndex = index;
         return current.data;
     }
 
@@ -48,6 +77,14 @@ public class SimpleLinkedList<T> implements LinkedList<T> {
         return size == 0;
     }
 
+    @Override
+    public void clear() {
+        head = null;
+        tail = null;
+        size = 0;
+        structureChanged();
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public T[] toArray() {
@@ -61,6 +98,101 @@ public class SimpleLinkedList<T> implements LinkedList<T> {
         return array;
     }
 
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private Node<T> next = head;
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                T data = next.data;
+                next = next.next;
+                return data;
+            }
+        };
+    }
+
+    /**
+     * Устойчивая сортировка слиянием снизу вверх за O(n log n) без рекурсии и без
+     * дополнительной памяти: узлы не копируются, переставляются только связи
+     */
+    public void mergeSort(Comparator<? super T> comparator) {
+        if (head == null || head.next == null) return;
+
+        Node<T> dummy = new Node<>(null);
+        dummy.next = head;
+        for (int width = 1; width < size; width *= 2) {
+            Node<T> prev = dummy;
+            Node<T> current = dummy.next;
+            while (current != null) {
+                Node<T> left = current;
+                Node<T> right = split(left, width);
+                current = split(right, width);
+                prev = merge(prev, left, right, comparator);
+            }
+        }
+        head = dummy.next;
+        Node<T> last = head;
+        while (last.next != null) {
+            last = last.next;
+        }
+        tail = last;
+        structureChanged();
+    }
+
+    // Отрезает первые count узлов и возвращает начало остатка
+    private static <U> Node<U> split(Node<U> start, int count) {
+        for (int i = 1; start != null && i < count; i++) {
+            start = start.next;
+        }
+        if (start == null) return null;
+        Node<U> rest = start.next;
+        start.next = null;
+        return rest;
+    }
+
+    // Сливает два отсортированных отрезка после prev и возвращает последний узел.
+    // При равенстве первым идёт узел левого отрезка, поэтому сортировка устойчива
+    private static <U> Node<U> merge(Node<U> prev, Node<U> left, Node<U> right,
+                                     Comparator<? super U> comparator) {
+        while (left != null && right != null) {
+            if (comparator.compare(right.data, left.data) < 0) {
+                prev.next = right;
+                right = right.next;
+            } else {
+                prev.next = left;
+                left = left.next;
+            }
+            prev = prev.next;
+        }
+        prev.next = left != null ? left : right;
+        while (prev.next != null) {
+            prev = prev.next;
+        }
+        return prev;
+    }
+
+    /**
+     * Вызывается наследниками после перестройки связей узлов (удаление, сортировка)
+     */
+    protected void structureChanged() {
+        cursorNode = null;
+        cursorIndex = 0;
+        modCount++;
+    }
+
     static class Node<U> {
         U data;
         Node<U> next;
@@ -70,4 +202,4 @@ public class SimpleLinkedList<T> implements LinkedList<T> {
             this.next = null;
         }
     }
-}
\ No newline at end of file
+}
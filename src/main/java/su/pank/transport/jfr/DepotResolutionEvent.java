@@ -0,0 +1,24 @@
+package su.pank.transport.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Разрешение депо из строки CSV: поиск в индексе или вставка нового депо
+ */
+@Name("su.pank.transport.DepotResolution")
+@Label("Разрешение депо")
+@Description("Поиск депо импорта по описанию, населённому пункту и району")
+@Category({"Каталог", "CSV"})
+@StackTrace(false)
+public class DepotResolutionEvent extends jdk.jfr.Event {
+    @Label("Описание")
+    public String description;
+
+    @Label("Создано")
+    @Description("true - депо не найдено и вставлено в базу")
+    public boolean created;
+}
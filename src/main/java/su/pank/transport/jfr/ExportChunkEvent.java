@@ -0,0 +1,26 @@
+package su.pank.transport.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Часть экспорта CSV: чтение очередных маршрутов из базы и их запись в файл
+ */
+@Name("su.pank.transport.ExportChunk")
+@Label("Часть экспорта")
+@Category({"Каталог", "CSV"})
+@StackTrace(false)
+public class ExportChunkEvent extends jdk.jfr.Event {
+    @Label("Строк")
+    public int rows;
+
+    @Label("Всего маршрутов")
+    public int totalRows;
+
+    @Label("Записано")
+    @DataAmount
+    public long bytesWritten;
+}
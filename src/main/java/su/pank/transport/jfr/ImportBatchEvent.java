@@ -0,0 +1,32 @@
+package su.pank.transport.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Пакет импорта CSV: разбор записей, разрешение депо и пакетная вставка маршрутов
+ */
+@Name("su.pank.transport.ImportBatch")
+@Label("Пакет импорта")
+@Description("От первой записи пакета до выполнения пакетной вставки")
+@Category({"Каталог", "CSV"})
+@StackTrace(false)
+public class ImportBatchEvent extends jdk.jfr.Event {
+    @Label("Маршрутов в пакете")
+    public int rows;
+
+    @Label("Пропущено записей")
+    public int skipped;
+
+    @Label("Прочитано")
+    @DataAmount
+    public long bytesRead;
+
+    @Label("Размер файла")
+    @DataAmount
+    public long fileSize;
+}
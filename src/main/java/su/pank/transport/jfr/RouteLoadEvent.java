@@ -0,0 +1,27 @@
+package su.pank.transport.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Чтение маршрутов из route_summary: весь каталог или одна страница
+ */
+@Name("su.pank.transport.RouteLoad")
+@Label("Загрузка маршрутов")
+@Description("Чтение маршрутов из базы: весь каталог или страница по ключу (номер, id)")
+@Category({"Каталог", "База данных"})
+@StackTrace(false)
+public class RouteLoadEvent extends jdk.jfr.Event {
+    @Label("Страница")
+    @Description("false - загрузка всего каталога")
+    public boolean page;
+
+    @Label("После номера")
+    public int afterRouteNumber;
+
+    @Label("Строк")
+    public int rows;
+}
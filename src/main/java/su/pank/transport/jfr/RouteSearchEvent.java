@@ -0,0 +1,24 @@
+package su.pank.transport.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Поиск маршрута по номеру среди загруженных
+ */
+@Name("su.pank.transport.RouteSearch")
+@Label("Поиск маршрута")
+@Category({"Каталог", "Маршруты"})
+@StackTrace(false)
+public class RouteSearchEvent extends jdk.jfr.Event {
+    @Label("Номер маршрута")
+    public int routeNumber;
+
+    @Label("Найден")
+    public boolean found;
+
+    @Label("Загружено маршрутов")
+    public int loadedRoutes;
+}
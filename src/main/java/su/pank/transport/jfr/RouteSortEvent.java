@@ -0,0 +1,21 @@
+package su.pank.transport.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Сортировка загруженного списка маршрутов
+ */
+@Name("su.pank.transport.RouteSort")
+@Label("Сортировка маршрутов")
+@Category({"Каталог", "Маршруты"})
+@StackTrace(false)
+public class RouteSortEvent extends jdk.jfr.Event {
+    @Label("Поля")
+    public String criteria;
+
+    @Label("Строк")
+    public int rows;
+}
@@ -0,0 +1,28 @@
+package su.pank.transport.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Изменение списка строк таблицы маршрутов в потоке JavaFX
+ */
+@Name("su.pank.transport.TableRefresh")
+@Label("Обновление таблицы")
+@Category({"Каталог", "Интерфейс"})
+@StackTrace(false)
+public class TableRefreshEvent extends jdk.jfr.Event {
+    public static final String PAGE = "страница";
+    public static final String SORT = "сортировка";
+    public static final String CHANGE = "изменение";
+
+    @Label("Причина")
+    public String reason;
+
+    @Label("Затронуто строк")
+    public int rows;
+
+    @Label("Строк в таблице")
+    public int tableRows;
+}
@@ -0,0 +1,91 @@
+package su.pank.transport.ui;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Выполнение запросов к базе и файлового ввода-вывода вне потока JavaFX.
+ * Результат возвращается как CompletableFuture, продолжения для UI выполняются через FX_THREAD
+ */
+public class BackgroundExecutor {
+    /**
+     * Исполнитель продолжений в потоке JavaFX
+     */
+    public static final Executor FX_THREAD = Platform::runLater;
+
+    private static BackgroundExecutor instance;
+
+    private final ExecutorService executor;
+
+    public BackgroundExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        // Потоки-демоны не мешают завершению приложения, если задача зависла на блокировке базы
+        this.executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "transport-io-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized BackgroundExecutor getInstance() {
+        if (instance == null) {
+            instance = new BackgroundExecutor();
+        }
+        return instance;
+    }
+
+    /**
+     * Запуск задачи в фоне. Проверяемые исключения задачи завершают future с ошибкой
+     */
+    public <T> CompletableFuture<T> supply(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (future.isDone()) return; // Отменена до старта
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Остановка приёма задач и ожидание уже запущенных
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("Ошибка остановки фоновых задач: не завершились за 5 секунд");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return исходная ошибка задачи без обёрток CompletionException/ExecutionException
+     */
+    public static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    public static boolean isCancellation(Throwable error) {
+        return unwrap(error) instanceof CancellationException;
+    }
+}
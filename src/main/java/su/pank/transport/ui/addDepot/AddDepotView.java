@@ -1,8 +1,10 @@
 package su.pank.transport.ui.addDepot;
 
 import su.pank.transport.data.models.RoutePoint;
+import su.pank.transport.ui.BackgroundExecutor;
 
 import javafx.application.Platform;
+import javafx.event.ActionEvent;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
@@ -44,24 +46,31 @@ public class AddDepotView extends Dialog<RoutePoint> {
 
         Platform.runLater(localityField::requestFocus);
 
-        setResultConverter(dialogButton -> {
-            if (dialogButton == addButtonType) {
-                String locality = localityField.getText();
-                String district = districtField.getText();
-                String description = descField.getText();
-                
-                String errorMsg = viewModel.validateAndAddRoutePoint(locality, district, description);
-                if (errorMsg == null) {
+        // Запись идёт в фоне, поэтому диалог закрывается вручную после ответа базы
+        Button addButton = (Button) getDialogPane().lookupButton(addButtonType);
+        addButton.addEventFilter(ActionEvent.ACTION, event -> {
+            event.consume();
+            String locality = localityField.getText();
+            String district = districtField.getText();
+            String description = descField.getText();
+
+            addButton.setDisable(true);
+            viewModel.validateAndAddRoutePoint(locality, district, description).whenCompleteAsync((errorMsg, error) -> {
+                addButton.setDisable(false);
+                if (error != null) {
+                    showAlert("Ошибка", "Не удалось добавить депо: " + BackgroundExecutor.unwrap(error).getMessage());
+                } else if (errorMsg == null) {
                     // Успешно добавлено
-                    return new RoutePoint(0, locality.trim(), district.trim(), description.trim());
+                    setResult(new RoutePoint(0, locality.trim(), district.trim(), description.trim()));
+                    close();
                 } else {
                     // Показываем ошибку
                     showAlert("Ошибка", errorMsg);
-                    return null;
                 }
-            }
-            return null;
+            }, BackgroundExecutor.FX_THREAD);
         });
+
+        setResultConverter(dialogButton -> null);
     }
 
     private void showAlert(String title, String content) {
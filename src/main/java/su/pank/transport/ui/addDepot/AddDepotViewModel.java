@@ -1,50 +1,90 @@
 package su.pank.transport.ui.addDepot;
 
+import su.pank.transport.data.PooledConnection;
+import su.pank.transport.data.WriteBehindQueue;
 import su.pank.transport.data.models.RoutePoint;
 import su.pank.transport.data.repository.RoutePointRepository;
+import su.pank.transport.ui.BackgroundExecutor;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * ViewModel для добавления нового депо
  */
 public class AddDepotViewModel {
     private final RoutePointRepository routePointRepository;
+    private final BackgroundExecutor executor;
+    private final WriteBehindQueue writeQueue;
 
-    public AddDepotViewModel(RoutePointRepository routePointRepository) {
+    public AddDepotViewModel(RoutePointRepository routePointRepository, BackgroundExecutor executor,
+                             WriteBehindQueue writeQueue) {
         this.routePointRepository = routePointRepository;
+        this.executor = executor;
+        this.writeQueue = writeQueue;
     }
 
     /**
-     * Добавление точки
-     * @param point
-     * @return true если добавлена
-     */
-    public boolean addRoutePoint(RoutePoint point) {
-        return routePointRepository.addRoutePoint(point);
-    }
-
-    /**
+     * Проверка полей сразу, проверка дубликата и запись в базу - в фоне
      * @return Ошибка, иначе null
      */
-    public String validateAndAddRoutePoint(String locality, String district, String description) {
+    public CompletableFuture<String> validateAndAddRoutePoint(String locality, String district, String description) {
         // Проверка на пустые поля
         if (locality == null || locality.trim().isEmpty() || 
             district == null || district.trim().isEmpty() || 
             description == null || description.trim().isEmpty()) {
-            return "Все поля должны быть заполнены.";
+            return CompletableFuture.completedFuture("Все поля должны быть заполнены.");
         }
 
         RoutePoint point = new RoutePoint(0, locality.trim(), district.trim(), description.trim());
 
-        if (routePointRepository.exists(point)) {
-            return "Такое депо уже существует.";
+        if (writeQueue.isEnabled()) {
+            // Id нового депо нужен диалогам маршрутов, поэтому диалог ждёт commit своей группы
+            return writeQueue.submit(new AddDepot(point));
+        }
+
+        return executor.supply(() -> {
+            if (routePointRepository.exists(point)) {
+                return "Такое депо уже существует.";
+            }
+
+            boolean success = routePointRepository.addRoutePoint(point) != null;
+
+            if (success) {
+                return null; // null означает успех
+            } else {
+                return "Не удалось добавить депо. Попробуйте еще раз.";
+            }
+        });
+    }
+
+    /**
+     * Проверка дубликата и вставка в очереди отложенной записи: проверка видит депо,
+     * поставленные в очередь раньше, но ещё не зафиксированные
+     */
+    private class AddDepot implements WriteBehindQueue.Write<String> {
+        private final RoutePoint point;
+        private RoutePoint saved;
+
+        AddDepot(RoutePoint point) {
+            this.point = point;
+        }
+
+        @Override
+        public String apply(PooledConnection conn) throws SQLException {
+            if (routePointRepository.exists(conn, point)) {
+                return "Такое депо уже существует.";
+            }
+            saved = routePointRepository.addRoutePoint(conn, point);
+            return null;
         }
 
-        boolean success = addRoutePoint(point);
-        
-        if (success) {
-            return null; // null означает успех
-        } else {
-            return "Не удалось добавить депо. Попробуйте еще раз.";
+        @Override
+        public void rolledBack() {
+            // SQLite может выдать id откаченной точки другой точке
+            if (saved != null) {
+                routePointRepository.evictCached(saved.getId());
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package su.pank.transport.ui.depots;
 
 import su.pank.transport.data.models.RoutePoint;
+import su.pank.transport.ui.BackgroundExecutor;
 import su.pank.transport.ui.addDepot.AddDepotView;
 
 import javafx.geometry.Insets;
@@ -34,8 +35,9 @@ public class DepotsView extends Stage {
         root.setPadding(new Insets(20));
 
         listView = new ListView<>();
-        listView.getItems().addAll(viewModel.getAllRoutePoints());
+        listView.setPlaceholder(new Label("Загрузка..."));
         listView.setPrefHeight(300);
+        refreshList();
 
         Button addBtn = new Button("Добавить депо");
         addBtn.setOnAction(e -> {
@@ -51,8 +53,21 @@ public class DepotsView extends Stage {
                 Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, "Удалить депо?");
                 confirm.showAndWait().ifPresent(response -> {
                     if (response == ButtonType.OK) {
-                        viewModel.deleteRoutePoint(selected);
-                        listView.getItems().remove(selected);
+                        if (viewModel.isWriteBehind()) {
+                            listView.getItems().remove(selected);
+                        }
+                        viewModel.deleteRoutePoint(selected).whenCompleteAsync((errorMsg, error) -> {
+                            if (error != null) {
+                                showAlert("Ошибка", "Не удалось удалить депо: "
+                                        + BackgroundExecutor.unwrap(error).getMessage());
+                                refreshList();
+                            } else if (errorMsg == null) {
+                                listView.getItems().remove(selected);
+                            } else {
+                                showAlert("Ошибка", errorMsg);
+                                refreshList();
+                            }
+                        }, BackgroundExecutor.FX_THREAD);
                     }
                 });
             }
@@ -70,7 +85,20 @@ public class DepotsView extends Stage {
     }
 
     private void refreshList() {
-        listView.getItems().clear();
-        listView.getItems().addAll(viewModel.getAllRoutePoints());
+        viewModel.loadRoutePoints().whenCompleteAsync((points, error) -> {
+            if (error != null) {
+                showAlert("Ошибка", "Не удалось загрузить депо: " + BackgroundExecutor.unwrap(error).getMessage());
+                return;
+            }
+            listView.getItems().setAll(points);
+        }, BackgroundExecutor.FX_THREAD);
+    }
+
+    private void showAlert(String title, String content) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(content);
+        alert.showAndWait();
     }
 }
\ No newline at end of file
@@ -1,28 +1,65 @@
 package su.pank.transport.ui.depots;
 
+import su.pank.transport.data.WriteBehindQueue;
 import su.pank.transport.data.models.RoutePoint;
 import su.pank.transport.data.repository.RoutePointRepository;
+import su.pank.transport.ui.BackgroundExecutor;
 import su.pank.transport.ui.addDepot.AddDepotViewModel;
-import su.pank.transport.domain.LinkedList;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * ViewModel для управления депо
  */
 public class DepotsViewModel {
+    private static final String IN_USE_MESSAGE =
+            "Депо используется маршрутами. Сначала измените или удалите эти маршруты.";
+
     private final RoutePointRepository routePointRepository;
+    private final BackgroundExecutor executor;
+    private final WriteBehindQueue writeQueue;
     private final AddDepotViewModel addDepotViewModel;
 
-    public DepotsViewModel(RoutePointRepository routePointRepository) {
+    public DepotsViewModel(RoutePointRepository routePointRepository, BackgroundExecutor executor,
+                           WriteBehindQueue writeQueue) {
         this.routePointRepository = routePointRepository;
-        this.addDepotViewModel = new AddDepotViewModel(routePointRepository);
+        this.executor = executor;
+        this.writeQueue = writeQueue;
+        this.addDepotViewModel = new AddDepotViewModel(routePointRepository, executor, writeQueue);
+    }
+
+    /**
+     * @return true - удаление показывается в списке сразу, а запись идёт очередью
+     */
+    public boolean isWriteBehind() {
+        return writeQueue.isEnabled();
     }
 
-    public RoutePoint[] getAllRoutePoints() {
-        return routePointRepository.getAllRoutePoints();
+    public CompletableFuture<RoutePoint[]> loadRoutePoints() {
+        return executor.supply(routePointRepository::getAllRoutePoints);
     }
 
-    public boolean deleteRoutePoint(RoutePoint point) {
-        return routePointRepository.deleteRoutePoint(point.getId());
+    /**
+     * Удаление депо, если на него не ссылается ни один маршрут
+     * @return сообщение об ошибке, null если депо удалено
+     */
+    public CompletableFuture<String> deleteRoutePoint(RoutePoint point) {
+        if (writeQueue.isEnabled()) {
+            // Проверка идёт в очереди после уже поставленных изменений маршрутов
+            return writeQueue.submit(conn -> {
+                if (routePointRepository.isInUse(conn, point.getId())) {
+                    return IN_USE_MESSAGE;
+                }
+                routePointRepository.deleteRoutePoint(conn, point.getId());
+                return null;
+            });
+        }
+        return executor.supply(() -> {
+            if (routePointRepository.isInUse(point.getId())) {
+                return IN_USE_MESSAGE;
+            }
+            return routePointRepository.deleteRoutePoint(point.getId()) ? null : "Не удалось удалить депо";
+        });
     }
 
     public AddDepotViewModel getAddDepotViewModel() {
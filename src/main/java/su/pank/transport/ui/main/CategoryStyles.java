@@ -0,0 +1,61 @@
+package su.pank.transport.ui.main;
+
+import su.pank.transport.data.models.Category;
+import su.pank.transport.data.repository.CategoryDictionary;
+
+/**
+ * CSS-классы значков категорий, построенные один раз по справочнику.
+ * Коды категорий бывают кириллическими, поэтому класс строится из номера бита категории
+ */
+final class CategoryStyles {
+    static final CategoryStyles EMPTY = new CategoryStyles(new Category[0]);
+
+    private final String[] codeByBit = new String[CategoryDictionary.MAX_CATEGORIES];
+    private final String[] classByBit = new String[CategoryDictionary.MAX_CATEGORIES];
+    private final String stylesheet;
+
+    CategoryStyles(Category[] categories) {
+        StringBuilder css = new StringBuilder();
+        for (Category category : categories) {
+            int bit = category.getBit();
+            String styleClass = "category-" + bit;
+            codeByBit[bit] = category.getCode();
+            classByBit[bit] = styleClass;
+            // Цвета проверены конструктором Category (#RRGGBB), их можно подставлять в CSS как есть
+            css.append(".category-badge.").append(styleClass)
+                    .append(" { -fx-background-color: ").append(category.getBgColor())
+                    .append("; -fx-text-fill: ").append(category.getTextColor())
+                    .append("; }");
+        }
+        this.stylesheet = css.toString();
+    }
+
+    /**
+     * @return код категории бита, null если в справочнике такой категории нет
+     */
+    String codeOf(int bit) {
+        return codeByBit[bit];
+    }
+
+    String styleClassOf(int bit) {
+        return classByBit[bit];
+    }
+
+    /**
+     * @return коды категорий маски через запятую, неизвестные биты пропускаются
+     */
+    String format(int mask) {
+        StringBuilder sb = new StringBuilder();
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            String code = codeByBit[Integer.numberOfTrailingZeros(rest)];
+            if (code == null) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(code);
+        }
+        return sb.toString();
+    }
+
+    String getStylesheet() {
+        return stylesheet;
+    }
+}
@@ -5,7 +5,6 @@ import javafx.geometry.Pos;
 import javafx.scene.Group;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
@@ -15,14 +14,21 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import su.pank.transport.data.models.Category;
 import su.pank.transport.data.models.Route;
+import su.pank.transport.domain.RouteChange;
+import su.pank.transport.domain.RouteSortKey;
+import su.pank.transport.domain.RouteSorter;
+import su.pank.transport.ui.BackgroundExecutor;
 import su.pank.transport.ui.depots.DepotsView;
 import su.pank.transport.ui.depots.DepotsViewModel;
+import su.pank.transport.ui.progress.ProgressView;
+import su.pank.transport.ui.progress.ProgressViewModel;
 import su.pank.transport.ui.route.RouteDialogViewModel;
 import su.pank.transport.ui.route.RouteView;
 
 import java.io.File;
-import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Главный View приложения управления маршрутами транспорта
@@ -31,6 +37,8 @@ public class MainView {
     private final MainViewModel viewModel;
     private final Stage primaryStage;
     private TableView<RouteUI> tableView;
+    private Label placeholder;
+    private CategoryStyles categoryStyles = CategoryStyles.EMPTY;
 
     public MainView(MainViewModel viewModel, Stage primaryStage) {
         this.viewModel = viewModel;
@@ -46,6 +54,31 @@ public class MainView {
         primaryStage.show();
     }
 
+    /**
+     * Первая загрузка в фоне: окно показывается сразу, таблица заполняется по готовности
+     * @return завершается, когда таблица заполнена или показана ошибка
+     */
+    public CompletableFuture<Void> loadInitialData() {
+        return viewModel.initialize()
+                .thenComposeAsync(v -> viewModel.loadCategories(), BackgroundExecutor.FX_THREAD)
+                .whenCompleteAsync((categories, error) -> {
+                    placeholder.setText("Нет данных в таблице");
+                    if (error != null) {
+                        showError("Не удалось загрузить маршруты", error);
+                        return;
+                    }
+                    applyCategoryStyles(categories);
+                }, BackgroundExecutor.FX_THREAD)
+                .handle((v, error) -> null);
+    }
+
+    // Цвета категорий из справочника подключаются отдельной таблицей стилей
+    private void applyCategoryStyles(Category[] categories) {
+        categoryStyles = new CategoryStyles(categories);
+        tableView.getScene().getStylesheets().add("data:text/css," + categoryStyles.getStylesheet());
+        tableView.refresh();
+    }
+
     private VBox createMainLayout() {
         VBox root = new VBox();
         root.setStyle("-fx-background-color: #F5FAFB;");
@@ -126,98 +159,31 @@ public class MainView {
         return btn;
     }
 
-    private HBox createBadgeHBox(RouteUI route) {
-        HBox hbox = new HBox(4);
-        hbox.setAlignment(Pos.CENTER);
-
-        Label numberBadge = new Label(String.valueOf(route.getRouteNumber()));
-        numberBadge.setStyle(String.format(
-                "-fx-background-color: %s; -fx-background-radius: 33; " +
-                        "-fx-padding: 0 8; -fx-text-fill: %s; " +
-                        "-fx-font-family: 'Roboto'; -fx-font-weight: 500; -fx-font-size: 11;",
-                route.getBadgeColor(), route.getTextColor()
-        ));
-
-        hbox.getChildren().add(numberBadge);
-
-        for (String cat : route.getSpecialCategories()) {
-            Label catBadge = new Label(cat);
-            catBadge.setStyle(String.format(
-                    "-fx-background-color: %s; -fx-background-radius: 33; " +
-                            "-fx-padding: 0 6; -fx-text-fill: %s; " +
-                            "-fx-font-family: 'Roboto'; -fx-font-weight: 500; -fx-font-size: 9;",
-                    route.getCategoryColor(cat), route.getCategoryTextColor(cat)
-            ));
-            hbox.getChildren().add(catBadge);
-        }
-
-        return hbox;
-    }
-
-    private HBox createPointCell(su.pank.transport.data.models.RoutePoint item) {
-        Label descLabel = new Label(item.getDescription());
-        Label locLabel = new Label(" (" + item.getLocality() + ", " + item.getDistrict() + ")");
-        locLabel.setStyle("-fx-text-fill: gray;");
-        HBox hbox = new HBox(descLabel, locLabel);
-        hbox.setAlignment(Pos.CENTER);
-        return hbox;
-    }
-
     // Создание столбцов таблицы
 
-    private TableColumn<RouteUI, Integer> createIdColumn() {
-        TableColumn<RouteUI, Integer> idCol = new TableColumn<>("Id");
-        idCol.setCellValueFactory(new PropertyValueFactory<>("routeNumber"));
+    private TableColumn<RouteUI, Route> createIdColumn() {
+        TableColumn<RouteUI, Route> idCol = new TableColumn<>("Id");
+        // Значение ячейки - маршрут целиком, чтобы смена категорий тоже перерисовывала значки
+        idCol.setCellValueFactory(cellData -> cellData.getValue().routeProperty());
+        idCol.setUserData(RouteSortKey.NUMBER);
         idCol.setPrefWidth(120);
-        idCol.setCellFactory(col -> new TableCell<RouteUI, Integer>() {
-            @Override
-            protected void updateItem(Integer item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setGraphic(null);
-                } else {
-                    RouteUI route = getTableView().getItems().get(getIndex());
-                    setGraphic(createBadgeHBox(route));
-                    setAlignment(Pos.CENTER);
-                }
-            }
-        });
+        idCol.setCellFactory(col -> new RouteBadgeCell(() -> categoryStyles));
         return idCol;
     }
 
     private TableColumn<RouteUI, su.pank.transport.data.models.RoutePoint> createStartPointColumn() {
         TableColumn<RouteUI, su.pank.transport.data.models.RoutePoint> startCol = new TableColumn<>("Начальный пункт");
-        startCol.setCellValueFactory(new PropertyValueFactory<>("startPoint"));
-        startCol.setCellFactory(col -> new TableCell<RouteUI, su.pank.transport.data.models.RoutePoint>() {
-            @Override
-            protected void updateItem(su.pank.transport.data.models.RoutePoint item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setGraphic(null);
-                } else {
-                    setGraphic(createPointCell(item));
-                }
-                setAlignment(Pos.CENTER);
-            }
-        });
+        startCol.setCellValueFactory(cellData -> cellData.getValue().startPointProperty());
+        startCol.setUserData(RouteSortKey.START_POINT);
+        startCol.setCellFactory(col -> new RoutePointCell());
         return startCol;
     }
 
     private TableColumn<RouteUI, su.pank.transport.data.models.RoutePoint> createEndPointColumn() {
         TableColumn<RouteUI, su.pank.transport.data.models.RoutePoint> endCol = new TableColumn<>("Конечный пункт");
-        endCol.setCellValueFactory(new PropertyValueFactory<>("endPoint"));
-        endCol.setCellFactory(col -> new TableCell<RouteUI, su.pank.transport.data.models.RoutePoint>() {
-            @Override
-            protected void updateItem(su.pank.transport.data.models.RoutePoint item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setGraphic(null);
-                } else {
-                    setGraphic(createPointCell(item));
-                }
-                setAlignment(Pos.CENTER);
-            }
-        });
+        endCol.setCellValueFactory(cellData -> cellData.getValue().endPointProperty());
+        endCol.setUserData(RouteSortKey.END_POINT);
+        endCol.setCellFactory(col -> new RoutePointCell());
         return endCol;
     }
 
@@ -226,15 +192,16 @@ public class MainView {
         TableView<RouteUI> table = new TableView<>();
         table.setStyle("-fx-background-color: white; -fx-background-radius: 12;");
 
-        Label placeholder = new Label("Нет данных в таблице");
+        placeholder = new Label("Загрузка...");
         table.setPlaceholder(placeholder);
 
-        TableColumn<RouteUI, Integer> idCol = createIdColumn();
+        TableColumn<RouteUI, Route> idCol = createIdColumn();
         TableColumn<RouteUI, su.pank.transport.data.models.RoutePoint> startCol = createStartPointColumn();
         TableColumn<RouteUI, su.pank.transport.data.models.RoutePoint> endCol = createEndPointColumn();
 
         table.getColumns().addAll(idCol, startCol, endCol);
         table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        table.setSortPolicy(this::sortTable);
 
         // Обработчик клика по строке для редактирования
         table.setRowFactory(tv -> {
@@ -250,10 +217,30 @@ public class MainView {
         return table;
     }
 
+    // Клик по заголовку сортирует список маршрутов по ключам столбцов вместо компараторов
+    // TableView; без столбцов сортировки текущий порядок не меняется
+    private boolean sortTable(TableView<RouteUI> table) {
+        if (table.getSortOrder().isEmpty()) {
+            viewModel.sortRoutes();
+            return true;
+        }
+        RouteSorter.Criterion[] criteria = new RouteSorter.Criterion[table.getSortOrder().size()];
+        for (int i = 0; i < criteria.length; i++) {
+            TableColumn<RouteUI, ?> column = table.getSortOrder().get(i);
+            criteria[i] = new RouteSorter.Criterion((RouteSortKey) column.getUserData(),
+                    column.getSortType() == TableColumn.SortType.DESCENDING);
+        }
+        viewModel.sortRoutes(criteria);
+        return true;
+    }
+
     // Создание нижней панели
     private HBox createButtonBar() {
         Button sortBtn = new Button("Сортировать");
+        // Сортировка идёт по списку в памяти и не обращается к базе
         sortBtn.setOnAction(e -> {
+            // Стрелки сортировки в заголовках больше не соответствуют порядку строк
+            tableView.getSortOrder().clear();
             viewModel.sortByRouteNumber();
             showAlert("Сортировка", "Маршруты отсортированы по номеру");
         });
@@ -266,7 +253,13 @@ public class MainView {
                         "Удалить маршрут " + selected.getRouteNumber() + "?");
                 confirm.showAndWait().ifPresent(response -> {
                     if (response == ButtonType.OK) {
-                        viewModel.deleteRoute(selected.getRoute());
+                        viewModel.deleteRoute(selected.getRoute()).whenCompleteAsync((deleted, error) -> {
+                            if (error != null) {
+                                showError("Не удалось удалить маршрут", error);
+                            } else if (!deleted) {
+                                showAlert("Ошибка", "Не удалось удалить маршрут " + selected.getRouteNumber());
+                            }
+                        }, BackgroundExecutor.FX_THREAD);
                     }
                 });
             }
@@ -304,7 +297,7 @@ public class MainView {
                             found.getRouteType(),
                             found.getStartDescription(),
                             found.getEndDescription(),
-                            found.getSpecialCategories().length == 0 ? "Нет" : String.join(", ", found.getSpecialCategories())
+                            found.getCategoryMask() == 0 ? "Нет" : categoryStyles.format(found.getCategoryMask())
                     ));
                 } else {
                     showAlert("Не найдено", "Маршрут с номером " + routeNumber + " не найден");
@@ -317,21 +310,26 @@ public class MainView {
 
 
     private void showAddRouteDialog() {
-        RouteDialogViewModel routeVM = new RouteDialogViewModel(viewModel.getRouteRepository(), viewModel.getRoutePointRepository());
+        RouteDialogViewModel routeVM = new RouteDialogViewModel(viewModel.getRouteRepository(),
+                viewModel.getRoutePointRepository(), viewModel.getRouteNumberIndex(), viewModel.getExecutor(),
+                viewModel.isWriteBehind());
         RouteView dialog = new RouteView(routeVM, null);
         dialog.showAndWait();
-        viewModel.loadAllRoutes(); // Обновление главного представления
+        applyDialogChange(routeVM); // Обновление главного представления
     }
 
     private void showEditRouteDialog(Route route) {
-        RouteDialogViewModel routeVM = new RouteDialogViewModel(viewModel.getRouteRepository(), viewModel.getRoutePointRepository());
+        RouteDialogViewModel routeVM = new RouteDialogViewModel(viewModel.getRouteRepository(),
+                viewModel.getRoutePointRepository(), viewModel.getRouteNumberIndex(), viewModel.getExecutor(),
+                viewModel.isWriteBehind());
         RouteView dialog = new RouteView(routeVM, route);
         dialog.showAndWait();
-        viewModel.loadAllRoutes(); // Обновление главного представления
+        applyDialogChange(routeVM); // Обновление главного представления
     }
 
     private void showDepotsDialog() {
-        DepotsViewModel depotsVM = new DepotsViewModel(viewModel.getRoutePointRepository());
+        DepotsViewModel depotsVM = new DepotsViewModel(viewModel.getRoutePointRepository(), viewModel.getExecutor(),
+                viewModel.getWriteQueue());
         DepotsView dialog = new DepotsView(depotsVM);
         dialog.showAndWait();
     }
@@ -339,18 +337,26 @@ public class MainView {
     private void exportToCSV() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Экспорт в CSV");
-        fileChooser.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("CSV файлы", "*.csv")
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV файлы", "*.csv"),
+                new FileChooser.ExtensionFilter("CSV, сжатый gzip", "*.csv.gz")
         );
         File file = fileChooser.showSaveDialog(primaryStage);
 
         if (file != null) {
-            try {
-                viewModel.exportToCSV(file);
-                showAlert("Успех", "Данные экспортированы в " + file.getName());
-            } catch (IOException e) {
-                showAlert("Ошибка", "Не удалось экспортировать данные: " + e.getMessage());
-            }
+            ProgressViewModel progress = new ProgressViewModel("Экспорт в " + file.getName());
+            ProgressView progressView = new ProgressView(progress);
+            progressView.show();
+            viewModel.exportToCSV(file, progress).whenCompleteAsync((count, error) -> {
+                progressView.close();
+                if (error == null) {
+                    showAlert("Успех", "Экспортировано маршрутов: " + count + " в " + file.getName());
+                } else if (BackgroundExecutor.isCancellation(error)) {
+                    showAlert("Экспорт отменён", "Файл " + file.getName() + " не создан");
+                } else {
+                    showError("Не удалось экспортировать данные", error);
+                }
+            }, BackgroundExecutor.FX_THREAD);
         }
     }
 
@@ -363,15 +369,45 @@ public class MainView {
         File file = fileChooser.showOpenDialog(primaryStage);
 
         if (file != null) {
-            try {
-                viewModel.importFromCSV(file);
-                showAlert("Успех", "Данные импортированы из " + file.getName());
-            } catch (IOException e) {
-                showAlert("Ошибка", "Не удалось импортировать данные: " + e.getMessage());
-            }
+            ProgressViewModel progress = new ProgressViewModel("Импорт из " + file.getName());
+            ProgressView progressView = new ProgressView(progress);
+            progressView.show();
+            viewModel.importFromCSV(file, progress).whenCompleteAsync((result, error) -> {
+                progressView.close();
+                if (error == null) {
+                    showAlert("Успех", "Данные импортированы из " + file.getName()
+                            + "\nДобавлено: " + result.getImported() + ", пропущено: " + result.getSkipped());
+                } else if (BackgroundExecutor.isCancellation(error)) {
+                    showAlert("Импорт отменён", "Изменения не сохранены");
+                } else {
+                    showError("Не удалось импортировать данные", error);
+                }
+            }, BackgroundExecutor.FX_THREAD);
         }
     }
 
+    // Только изменённая строка, без перезагрузки таблицы
+    private void applyDialogChange(RouteDialogViewModel routeVM) {
+        RouteChange change = routeVM.getChange();
+        if (change == null) return;
+        if (!routeVM.isWriteBehind()) {
+            viewModel.applyChange(change);
+            return;
+        }
+        // Строка уже в таблице; при ошибке записи таблица перечитывается из базы
+        viewModel.submitChange(change).whenCompleteAsync((saved, error) -> {
+            if (error != null) {
+                showError("Не удалось сохранить маршрут " + change.getRoute().getRouteNumber(), error);
+            } else if (!saved) {
+                showAlert("Ошибка", "Не удалось сохранить маршрут " + change.getRoute().getRouteNumber());
+            }
+        }, BackgroundExecutor.FX_THREAD);
+    }
+
+    private void showError(String message, Throwable error) {
+        showAlert("Ошибка", message + ": " + BackgroundExecutor.unwrap(error).getMessage());
+    }
+
     private void showAlert(String title, String content) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle(title);
@@ -399,6 +435,39 @@ public class MainView {
                     .button:hover {
                         -fx-background-color: #B0D4D7;
                     }
+                    .route-badge {
+                        -fx-background-color: #E3E9EA;
+                        -fx-background-radius: 33;
+                        -fx-padding: 0 8;
+                        -fx-text-fill: #161D1D;
+                        -fx-font-family: 'Roboto';
+                        -fx-font-weight: 500;
+                        -fx-font-size: 11;
+                    }
+                    .route-badge.route-urban {
+                        -fx-background-color: #B8F1B9;
+                        -fx-text-fill: #1E5127;
+                    }
+                    .route-badge.route-mixed {
+                        -fx-background-color: #DFE0FF;
+                        -fx-text-fill: #3B4279;
+                    }
+                    .route-badge.route-suburban {
+                        -fx-background-color: #F9E287;
+                        -fx-text-fill: #534600;
+                    }
+                    .category-badge {
+                        -fx-background-color: #95A5A6;
+                        -fx-background-radius: 33;
+                        -fx-padding: 0 6;
+                        -fx-text-fill: #34495E;
+                        -fx-font-family: 'Roboto';
+                        -fx-font-weight: 500;
+                        -fx-font-size: 9;
+                    }
+                    .point-location {
+                        -fx-text-fill: gray;
+                    }
                 """.replaceAll("\n", "");
     }
 }
\ No newline at end of file
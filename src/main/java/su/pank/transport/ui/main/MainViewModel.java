@@ -1,55 +1,177 @@
 package su.pank.transport.ui.main;
 
+import su.pank.transport.data.PooledConnection;
+import su.pank.transport.data.WriteBehindQueue;
+import su.pank.transport.data.csv.ImportResult;
+import su.pank.transport.data.csv.ProgressMonitor;
+import su.pank.transport.data.csv.RouteCsvExporter;
+import su.pank.transport.data.csv.RouteCsvImporter;
+import su.pank.transport.data.migration.SchemaMigrator;
 import su.pank.transport.data.repository.RoutePointRepository;
 import su.pank.transport.data.repository.RouteRepository;
 import su.pank.transport.data.models.Route;
+import su.pank.transport.domain.RouteChange;
 import su.pank.transport.domain.RouteLinkedList;
-import su.pank.transport.domain.SimpleLinkedList;
-import su.pank.transport.domain.LinkedList;
-import su.pank.transport.data.models.RoutePoint;
+import su.pank.transport.domain.RouteNumberIndex;
+import su.pank.transport.domain.RouteSorter;
+import su.pank.transport.jfr.RouteSearchEvent;
+import su.pank.transport.jfr.RouteSortEvent;
+import su.pank.transport.jfr.TableRefreshEvent;
 import su.pank.transport.data.models.Category;
+import su.pank.transport.ui.BackgroundExecutor;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
-import java.io.*;
+import java.io.File;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MainViewModel {
+    // Первая страница появляется в таблице сразу, остальные дописываются по мере загрузки
+    static final int PAGE_SIZE = 100;
+
+    private final SchemaMigrator schemaMigrator;
     private final RouteRepository routeRepository;
     private final RoutePointRepository routePointRepository;
+    private final RouteCsvImporter routeCsvImporter;
+    private final RouteCsvExporter routeCsvExporter;
+
+    private final BackgroundExecutor executor;
+    private final WriteBehindQueue writeQueue;
 
     private final RouteLinkedList routes;
     private final ObservableList<RouteUI> observableRoutes;
+    // Строки таблицы по id маршрута для точечных обновлений
+    private final Map<Integer, RouteUI> rowsById = new HashMap<>();
+
+    // Состояние перезагрузки меняется только в потоке JavaFX
+    private CompletableFuture<Void> runningReload;
+    private CompletableFuture<Void> queuedReload;
+    // Сортировка из заголовков таблицы, null - порядок загрузки по номеру. Поток JavaFX
+    private RouteSorter.Criterion[] activeSort;
 
-    public MainViewModel(RouteRepository routeRepository, RoutePointRepository routePointRepository) {
+    // Отложенная запись, поток JavaFX: временные id новых маршрутов отрицательные,
+    // после записи строка переходит на id из базы
+    private int lastProvisionalId;
+    private final Map<Integer, Integer> confirmedIds = new HashMap<>();
+    // Id строк, удалённых локально, пока удаление ещё в очереди
+    private final Set<Integer> pendingRemovals = new HashSet<>();
+    // Поток записи: id из базы для временных id. Нужен записям, поставленным в очередь
+    // до подтверждения вставки; на сеанс это по одному числу на добавленный маршрут
+    private final Map<Integer, Integer> savedIds = new ConcurrentHashMap<>();
+
+    public MainViewModel(SchemaMigrator schemaMigrator,
+                         RouteRepository routeRepository, RoutePointRepository routePointRepository,
+                         RouteCsvImporter routeCsvImporter, RouteCsvExporter routeCsvExporter,
+                         BackgroundExecutor executor, WriteBehindQueue writeQueue) {
+        this.schemaMigrator = schemaMigrator;
         this.routeRepository = routeRepository;
         this.routePointRepository = routePointRepository;
+        this.routeCsvImporter = routeCsvImporter;
+        this.routeCsvExporter = routeCsvExporter;
+        this.executor = executor;
+        this.writeQueue = writeQueue;
 
         this.routes = new RouteLinkedList();
         this.observableRoutes = FXCollections.observableArrayList();
     }
 
     /**
-     * Старт работы
+     * Старт работы: миграция схемы в фоне, затем первая загрузка маршрутов
      */
-    public void initialize() {
-        routeRepository.initialize();
-        routePointRepository.initialize();
-        loadAllRoutes();
+    public CompletableFuture<Void> initialize() {
+        return executor.supply(schemaMigrator::migrate)
+                .thenComposeAsync(version -> reloadRoutes(), BackgroundExecutor.FX_THREAD);
     }
 
     /**
-     * Загрузка точек из базы данных
+     * Перезагрузка маршрутов из базы страницами по номеру. Вызывается из потока JavaFX.
+     * Пока идёт загрузка, повторные запросы объединяются в одну следующую загрузку
      */
-    public void loadAllRoutes() {
-        routes.clear();
-        RouteLinkedList dbRoutes = routeRepository.getAllRoutes();
+    public CompletableFuture<Void> reloadRoutes() {
+        if (runningReload == null) {
+            runningReload = loadPage(0, 0, true)
+                    .whenCompleteAsync((v, error) -> startQueuedReload(), BackgroundExecutor.FX_THREAD);
+            return runningReload;
+        }
+        if (queuedReload == null) {
+            queuedReload = new CompletableFuture<>();
+        }
+        return queuedReload;
+    }
+
+    private void startQueuedReload() {
+        runningReload = null;
+        CompletableFuture<Void> queued = queuedReload;
+        queuedReload = null;
+        if (queued != null) {
+            reloadRoutes().whenComplete((v, error) -> {
+                if (error != null) {
+                    queued.completeExceptionally(error);
+                } else {
+                    queued.complete(null);
+                }
+            });
+        }
+    }
 
-        observableRoutes.clear();
-        for (int i = 0; i < dbRoutes.size(); i++) {
-            Route route = dbRoutes.get(i);
+    // Страница после ключа (номер, id); следующая запрашивается, когда текущая уже в таблице
+    private CompletableFuture<Void> loadPage(int afterNumber, int afterId, boolean first) {
+        return executor.supply(() -> {
+                    if (first) {
+                        // Записи, поставленные до перезагрузки, должны попасть в прочитанные страницы
+                        writeQueue.flush().join();
+                    }
+                    return routeRepository.getRoutesPage(afterNumber, afterId, PAGE_SIZE);
+                })
+                .thenComposeAsync(page -> {
+                    appendRoutes(page, first);
+                    if (page.length < PAGE_SIZE) {
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    Route last = page[page.length - 1];
+                    return loadPage(last.getRouteNumber(), last.getId(), false);
+                }, BackgroundExecutor.FX_THREAD);
+    }
+
+    private void appendRoutes(Route[] page, boolean first) {
+        TableRefreshEvent event = new TableRefreshEvent();
+        event.begin();
+        if (first) {
+            routes.clear();
+            rowsById.clear();
+        }
+        RouteUI[] routeUIArray = new RouteUI[page.length];
+        int count = 0;
+        for (Route route : page) {
+            // Маршрут, добавленный во время загрузки, уже есть в таблице, а удалённый локально
+            // ещё может прийти в странице, прочитанной до записи удаления
+            if (rowsById.containsKey(route.getId()) || pendingRemovals.contains(route.getId())) continue;
             routes.add(route);
-            observableRoutes.add(new RouteUI(route));
+            RouteUI row = new RouteUI(route);
+            rowsById.put(route.getId(), row);
+            routeUIArray[count++] = row;
+        }
+        if (first) {
+            observableRoutes.setAll(Arrays.copyOf(routeUIArray, count));
+        } else {
+            observableRoutes.addAll(Arrays.copyOf(routeUIArray, count));
+        }
+        commitRefresh(event, TableRefreshEvent.PAGE, count);
+        // Страницы приходят по номеру: без пересортировки таблица показала бы смешанный порядок
+        if (activeSort != null && count > 0) {
+            routes.sort(activeSort);
+            reorderRows();
         }
     }
 
@@ -58,167 +180,344 @@ public class MainViewModel {
     }
 
     /**
-     * Добавление точки
+     * Добавление маршрута
      * @param route
-     * @return true если точка добавлена
+     * @return true если маршрут добавлен
      */
-    public boolean addRoute(Route route) {
-        if (routeRepository.addRoute(route)) {
-            loadAllRoutes();
-            return true;
+    public CompletableFuture<Boolean> addRoute(Route route) {
+        if (writeQueue.isEnabled()) {
+            return submitChange(RouteChange.insert(route));
         }
-        return false;
+        return saveAndApply(() -> {
+            Route saved = routeRepository.addRoute(route);
+            return saved != null ? RouteChange.insert(saved) : null;
+        });
     }
 
-    public boolean updateRoute(Route route) {
-        if (routeRepository.updateRoute(route)) {
-            loadAllRoutes();
-            return true;
+    public CompletableFuture<Boolean> updateRoute(Route route) {
+        if (writeQueue.isEnabled()) {
+            return submitChange(RouteChange.replace(route));
         }
-        return false;
+        return saveAndApply(() -> {
+            Route saved = routeRepository.updateRoute(route);
+            return saved != null ? RouteChange.replace(saved) : null;
+        });
     }
 
-    public boolean deleteRoute(Route route) {
-        if (routeRepository.deleteRoute(route.getId())) {
-            routes.remove(route);
-            observableRoutes.removeIf(rpm -> rpm.getRoute().getId() == route.getId());
-            return true;
+    public CompletableFuture<Boolean> deleteRoute(Route route) {
+        if (writeQueue.isEnabled()) {
+            return submitChange(RouteChange.remove(route));
         }
-        return false;
+        return saveAndApply(() -> routeRepository.deleteRoute(route.getId()) ? RouteChange.remove(route) : null);
     }
 
-    public Route searchByRouteNumber(int routeNumber) {
-        return routes.linearSearch(routeNumber);
+    private CompletableFuture<Boolean> saveAndApply(Callable<RouteChange> save) {
+        return executor.supply(save).thenApplyAsync(change -> {
+            if (change == null) return false;
+            applyChange(change);
+            return true;
+        }, BackgroundExecutor.FX_THREAD);
     }
 
-    public void sortByRouteNumber() {
-        routes.insertionSort();
-        observableRoutes.clear();
-        Route[] routeArray = routes.toArray();
-        RouteUI[] routeUIArray = new RouteUI[routeArray.length];
-        for (int i = 0; i < routeArray.length; i++) {
-            routeUIArray[i] = new RouteUI(routeArray[i]);
-        }
-        observableRoutes.addAll(routeUIArray);
-    }
-
-    public void exportToCSV(File file) throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            writer.write("ID,Route Number,Start Point,End Point,Special Category,Route Type\n");
-            for (int i = 0; i < routes.size(); i++) {
-                Route r = routes.get(i);
-                writer.write(String.format("%d,%d,\"%s\",\"%s\",\"%s\",\"%s\"\n",
-                        r.getId(),
-                        r.getRouteNumber(),
-                        r.getStartDescription() + " (" + r.getStartLocality() + ", " + r.getStartDistrict() + ")",
-                        r.getEndDescription() + " (" + r.getEndLocality() + ", " + r.getEndDistrict() + ")",
-                        r.getSpecialCategoryString(),
-                        r.getRouteType()
-                ));
+    /**
+     * Точечное применение изменения к списку и таблице. Строка при замене обновляется на месте,
+     * поэтому выделение и прокрутка таблицы сохраняются
+     */
+    public void applyChange(RouteChange change) {
+        if (runningReload != null) {
+            // Уже прочитанные страницы могли не увидеть изменение: после загрузки - ещё одна
+            reloadRoutes();
+        }
+        if (!applyRows(change)) {
+            // Список разошёлся с базой, например маршрут удалён в другом окне
+            reloadRoutes();
+        }
+    }
+
+    // Изменение списка и строк таблицы без обращения к базе
+    private boolean applyRows(RouteChange change) {
+        if (!routes.apply(change)) {
+            return false;
+        }
+        Route route = change.getRoute();
+        TableRefreshEvent event = new TableRefreshEvent();
+        event.begin();
+        switch (change.getType()) {
+            case INSERT -> {
+                RouteUI row = new RouteUI(route);
+                rowsById.put(route.getId(), row);
+                observableRoutes.add(row);
+            }
+            case REPLACE -> rowsById.get(route.getId()).update(route);
+            case REMOVE -> {
+                RouteUI row = rowsById.remove(route.getId());
+                if (row != null) {
+                    observableRoutes.remove(row);
+                }
             }
         }
+        commitRefresh(event, TableRefreshEvent.CHANGE, 1);
+        return true;
     }
 
     /**
-     * Импорт из CSB
-     * @param file
-     * @throws IOException
+     * @return true - изменения маршрутов показываются сразу, а в базу пишутся очередью
      */
-    public void importFromCSV(File file) throws IOException {
-        LinkedList<RoutePoint> allPoints = new SimpleLinkedList<>(RoutePoint.class);
-        for (RoutePoint point : getAllRoutePoints()) {
-            allPoints.add(point);
-        }
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line = reader.readLine(); // Пропуск заголовков
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1); // Разделение CSV с кавычками
-                if (parts.length < 6) continue;
-                try {
-                    int routeNumber = Integer.parseInt(parts[1].trim());
-                    String startPointStr = parts[2].replaceAll("^\"|\"$", "").trim();
-                    String endPointStr = parts[3].replaceAll("^\"|\"$", "").trim();
-                    String specialCategory = parts[4].replaceAll("^\"|\"$", "").trim();
-
-                    RoutePoint startPoint = findOrCreateRoutePoint(startPointStr, allPoints);
-                    RoutePoint endPoint = findOrCreateRoutePoint(endPointStr, allPoints);
-
-                    Route route = new Route(0, routeNumber, startPoint.getId(), startPoint.getLocality(),
-                            startPoint.getDistrict(), startPoint.getDescription(),
-                            endPoint.getId(), endPoint.getLocality(), endPoint.getDistrict(),
-                            endPoint.getDescription(), specialCategory);
-                    addRoute(route);
-                } catch (Exception e) {
-                    // Пропуск невалидных строк
+    public boolean isWriteBehind() {
+        return writeQueue.isEnabled();
+    }
+
+    /**
+     * Отложенная запись: изменение сразу применяется к списку и таблице и встаёт в очередь записи.
+     * Новый маршрут до записи живёт под временным отрицательным id. При ошибке записи
+     * список перечитывается из базы, а future завершается этой ошибкой
+     * @return true после записи, false если изменяемого маршрута в базе уже нет
+     */
+    public CompletableFuture<Boolean> submitChange(RouteChange change) {
+        Route route = change.getRoute();
+        return switch (change.getType()) {
+            case INSERT -> submitInsert(route);
+            case REPLACE -> submitReplace(route.withId(currentId(route.getId())));
+            case REMOVE -> submitRemove(route.withId(currentId(route.getId())));
+        };
+    }
+
+    private CompletableFuture<Boolean> submitInsert(Route route) {
+        Route provisional = route.withId(--lastProvisionalId);
+        applyRows(RouteChange.insert(provisional));
+        int version = ++rowsById.get(provisional.getId()).localVersion;
+        return confirmWrite(writeQueue.submit(new InsertRoute(provisional)), provisional.getId(), version);
+    }
+
+    private CompletableFuture<Boolean> submitReplace(Route route) {
+        if (!applyRows(RouteChange.replace(route))) {
+            reloadRoutes();
+            return CompletableFuture.completedFuture(false);
+        }
+        int version = ++rowsById.get(route.getId()).localVersion;
+        return confirmWrite(writeQueue.submit(conn -> routeRepository.updateRoute(conn,
+                route.withId(savedId(route.getId())))), route.getId(), version);
+    }
+
+    private CompletableFuture<Boolean> submitRemove(Route route) {
+        int id = route.getId();
+        if (!applyRows(RouteChange.remove(route))) {
+            reloadRoutes();
+        }
+        pendingRemovals.add(id);
+        return writeQueue.submit(conn -> routeRepository.deleteRoute(conn, savedId(id)))
+                .handleAsync((deleted, error) -> {
+                    pendingRemovals.remove(id);
+                    pendingRemovals.remove(currentId(id));
+                    if (error != null) {
+                        reloadRoutes();
+                        throw new CompletionException(BackgroundExecutor.unwrap(error));
+                    }
+                    // Маршрут, которого уже нет в базе, тоже считается удалённым
+                    return true;
+                }, BackgroundExecutor.FX_THREAD);
+    }
+
+    private CompletableFuture<Boolean> confirmWrite(CompletableFuture<Route> write, int localId, int version) {
+        return write.handleAsync((saved, error) -> {
+            if (error != null || saved == null) {
+                // Таблица приводится к состоянию базы
+                reloadRoutes();
+                if (error != null) {
+                    throw new CompletionException(BackgroundExecutor.unwrap(error));
                 }
+                return false;
             }
-        }
-        loadAllRoutes(); // Обновление списка
+            applySaved(localId, saved, version);
+            return true;
+        }, BackgroundExecutor.FX_THREAD);
     }
 
     /**
-     * Вспомогательная функция для импорта точки из CSB
-     * @param pointStr строка точки
-     * @param allPoints все точки
-     * @return найденную точку или созданную
+     * Сверка строки с записанным маршрутом: строка переходит на id из базы, а её содержимое
+     * заменяется сохранённым, только если после этой записи строку больше не меняли
      */
-    private RoutePoint findOrCreateRoutePoint(String pointStr, LinkedList<RoutePoint> allPoints) {
-        String description = pointStr;
-        String locality = "";
-        String district = "";
-        if (pointStr.contains("(") && pointStr.contains(")")) {
-            int openParen = pointStr.lastIndexOf("(");
-            int closeParen = pointStr.lastIndexOf(")");
-            if (openParen < closeParen) {
-                description = pointStr.substring(0, openParen).trim();
-                String locDist = pointStr.substring(openParen + 1, closeParen);
-                String[] locDistParts = locDist.split(",");
-                if (locDistParts.length >= 2) {
-                    locality = locDistParts[0].trim();
-                    district = locDistParts[1].trim();
-                }
+    private void applySaved(int localId, Route saved, int version) {
+        int id = saved.getId();
+        if (localId != id) {
+            confirmedIds.put(localId, id);
+        }
+        RouteUI row = rowsById.get(id);
+        if (row == null) {
+            row = rowsById.get(localId);
+        }
+        if (row == null) {
+            // Строки нет: маршрут удалён локально или список перечитан раньше, чем запись дошла до базы
+            if (pendingRemovals.contains(localId)) {
+                // Удаление нового маршрута ещё в очереди: страницы должны пропускать и id из базы
+                pendingRemovals.add(id);
+            } else if (!pendingRemovals.contains(id)) {
+                applyRows(RouteChange.insert(saved));
             }
+            return;
+        }
+        TableRefreshEvent event = new TableRefreshEvent();
+        event.begin();
+        Route current = row.getRoute();
+        Route next = row.localVersion == version ? saved : current.withId(id);
+        routes.replace(current.getId(), next);
+        if (current.getId() != id) {
+            rowsById.remove(current.getId());
+            rowsById.put(id, row);
         }
+        row.update(next);
+        commitRefresh(event, TableRefreshEvent.CHANGE, 1);
+    }
 
-        for (RoutePoint p : allPoints.toArray()) {
-            if (p.getDescription().equals(description)) {
-                return p;
-            }
+    // Поток JavaFX: id строки с учётом уже записанных новых маршрутов
+    private int currentId(int routeId) {
+        return confirmedIds.getOrDefault(routeId, routeId);
+    }
+
+    // Поток записи: id в базе для записи, поставленной в очередь до подтверждения вставки
+    private int savedId(int routeId) throws SQLException {
+        if (routeId > 0) {
+            return routeId;
+        }
+        Integer saved = savedIds.get(routeId);
+        if (saved == null) {
+            throw new SQLException("Route " + routeId + " was not saved");
+        }
+        return saved;
+    }
+
+    /**
+     * Вставка нового маршрута в потоке записи. Id из базы запоминается для следующих записей
+     * этого маршрута и забывается, если транзакция группы откатилась
+     */
+    private class InsertRoute implements WriteBehindQueue.Write<Route> {
+        private final Route provisional;
+
+        InsertRoute(Route provisional) {
+            this.provisional = provisional;
+        }
+
+        @Override
+        public Route apply(PooledConnection conn) throws SQLException {
+            Route saved = routeRepository.addRoute(conn, provisional);
+            savedIds.put(provisional.getId(), saved.getId());
+            return saved;
+        }
+
+        @Override
+        public void rolledBack() {
+            savedIds.remove(provisional.getId());
+        }
+    }
+
+    public Route searchByRouteNumber(int routeNumber) {
+        RouteSearchEvent event = new RouteSearchEvent();
+        event.begin();
+        Route found = routes.findByRouteNumber(routeNumber);
+        event.end();
+        if (event.shouldCommit()) {
+            event.routeNumber = routeNumber;
+            event.found = found != null;
+            event.loadedRoutes = routes.size();
+            event.commit();
         }
+        return found;
+    }
+
+    /**
+     * @return индекс номеров загруженных маршрутов, обновляется вместе со списком
+     */
+    public RouteNumberIndex getRouteNumberIndex() {
+        return routes.getNumberIndex();
+    }
 
-        RoutePoint newPoint = new RoutePoint(0, locality, district, description);
-        addRoutePoint(newPoint);
-        allPoints.add(newPoint);
-        return newPoint;
+    public void sortByRouteNumber() {
+        RouteSortEvent event = new RouteSortEvent();
+        event.begin();
+        activeSort = null;
+        routes.mergeSort(Comparator.comparingInt(Route::getRouteNumber));
+        commitSort(event, "NUMBER");
+        reorderRows();
     }
 
     /**
-     * @return точки из БД
+     * Сортировка по полям таблицы, первое поле главное. Равные маршруты сохраняют текущий порядок.
+     * Сортировка запоминается и применяется к страницам, загруженным позже
      */
-    public RoutePoint[] getAllRoutePoints() {
-        return routePointRepository.getAllRoutePoints();
+    public void sortRoutes(RouteSorter.Criterion... criteria) {
+        // Без полей текущий порядок остаётся, а новые страницы дописываются в конец
+        activeSort = criteria.length > 0 ? criteria.clone() : null;
+        if (activeSort == null) return;
+        RouteSortEvent event = new RouteSortEvent();
+        event.begin();
+        routes.sort(criteria);
+        // Строка полей собирается, только если событие включено и прошло порог
+        event.end();
+        if (event.shouldCommit()) {
+            commitSort(event, Arrays.toString(criteria));
+        }
+        reorderRows();
+    }
+
+    private void commitSort(RouteSortEvent event, String criteria) {
+        event.criteria = criteria;
+        event.rows = routes.size();
+        event.commit();
+    }
+
+    // Строки переставляются на месте одной перестановкой: TableView не пересоздаёт ячейки,
+    // а выделенная строка остаётся выделенной
+    private void reorderRows() {
+        int position = 0;
+        for (Route route : routes) {
+            rowsById.get(route.getId()).sortPosition = position++;
+        }
+        TableRefreshEvent event = new TableRefreshEvent();
+        event.begin();
+        observableRoutes.sort(Comparator.comparingInt(row -> row.sortPosition));
+        commitRefresh(event, TableRefreshEvent.SORT, observableRoutes.size());
+    }
+
+    private void commitRefresh(TableRefreshEvent event, String reason, int rows) {
+        event.reason = reason;
+        event.rows = rows;
+        event.tableRows = observableRoutes.size();
+        event.commit();
     }
 
     /**
-     * Добавление точки
-     * @param point
-     * @return true если корректно добавлена
+     * Экспорт потоком из базы в фоне после записи очереди изменений, для *.csv.gz вывод сжимается
+     * @return количество выгруженных маршрутов
      */
-    public boolean addRoutePoint(RoutePoint point) {
-        return routePointRepository.addRoutePoint(point);
+    public CompletableFuture<Integer> exportToCSV(File file, ProgressMonitor monitor) {
+        return executor.supply(() -> {
+            writeQueue.flush().join();
+            return routeCsvExporter.exportFile(file, monitor);
+        });
     }
 
     /**
-     * Удаление точки
-     * @param point
-     * @return true если всё прошло успешно
+     * Импорт из CSV в фоне одной транзакцией и одно обновление списка в конце.
+     * При отмене через monitor транзакция откатывается
+     * @param file
+     * @return количество импортированных и пропущенных строк
      */
-    public boolean deleteRoutePoint(RoutePoint point) {
-        return routePointRepository.deleteRoutePoint(point.getId());
+    public CompletableFuture<ImportResult> importFromCSV(File file, ProgressMonitor monitor) {
+        return executor.supply(() -> {
+                    // Номера из очереди записи должны быть видны проверке дубликатов импорта
+                    writeQueue.flush().join();
+                    return routeCsvImporter.importFile(file, monitor);
+                })
+                .thenComposeAsync(result -> reloadRoutes().thenApply(v -> result), BackgroundExecutor.FX_THREAD);
     }
 
-    public Category[] getAllCategories() {
-        return routeRepository.getAllCategories();
+    public CompletableFuture<Category[]> loadCategories() {
+        return executor.supply(routeRepository::getAllCategories);
+    }
+
+    // Getter
+    public BackgroundExecutor getExecutor() {
+        return executor;
     }
 
     // Getter
@@ -230,4 +529,9 @@ public class MainViewModel {
     public RoutePointRepository getRoutePointRepository() {
         return routePointRepository;
     }
+
+    // Getter
+    public WriteBehindQueue getWriteQueue() {
+        return writeQueue;
+    }
 }
\ No newline at end of file
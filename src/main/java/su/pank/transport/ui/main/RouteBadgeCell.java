@@ -0,0 +1,122 @@
+package su.pank.transport.ui.main;
+
+import su.pank.transport.data.models.Route;
+import su.pank.transport.data.models.RouteType;
+import su.pank.transport.domain.RouteNumberIndex;
+
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
+import javafx.scene.layout.HBox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Ячейка со значками номера и категорий. Узлы создаются один раз на ячейку и
+ * переиспользуются при прокрутке, цвета задаются CSS-классами вместо inline-стилей
+ */
+class RouteBadgeCell extends TableCell<RouteUI, Route> {
+    private static final String[] TYPE_CLASSES = new String[RouteType.values().length];
+    // Тексты номеров общие для всех ячеек, номеров не больше 999
+    private static final String[] NUMBER_TEXT = new String[RouteNumberIndex.MAX_ROUTE_NUMBER + 1];
+
+    static {
+        for (RouteType type : RouteType.values()) {
+            TYPE_CLASSES[type.ordinal()] = "route-" + type.name().toLowerCase();
+        }
+    }
+
+    private final Supplier<CategoryStyles> categoryStyles;
+    private final HBox box = new HBox(4);
+    private final Label numberBadge = new Label();
+    private String typeClass;
+    // Пул значков категорий и их текущие классы
+    private final List<Label> categoryBadges = new ArrayList<>();
+    private final List<String> categoryClasses = new ArrayList<>();
+
+    RouteBadgeCell(Supplier<CategoryStyles> categoryStyles) {
+        this.categoryStyles = categoryStyles;
+        numberBadge.getStyleClass().add("route-badge");
+        box.setAlignment(Pos.CENTER);
+        box.getChildren().add(numberBadge);
+        setAlignment(Pos.CENTER);
+    }
+
+    @Override
+    protected void updateItem(Route item, boolean empty) {
+        super.updateItem(item, empty);
+        if (empty || item == null) {
+            setGraphic(null);
+            return;
+        }
+
+        int number = item.getRouteNumber();
+        numberBadge.setText(numberText(number));
+        setTypeClass(TYPE_CLASSES[item.getType().ordinal()]);
+
+        // Значки идут в порядке битов маски, биты без категории в справочнике пропускаются
+        CategoryStyles styles = categoryStyles.get();
+        int count = 0;
+        for (int rest = item.getCategoryMask(); rest != 0; rest &= rest - 1) {
+            int bit = Integer.numberOfTrailingZeros(rest);
+            String code = styles.codeOf(bit);
+            if (code == null) continue;
+            if (count == categoryBadges.size()) {
+                Label badge = new Label();
+                badge.getStyleClass().add("category-badge");
+                categoryBadges.add(badge);
+                categoryClasses.add(null);
+            }
+            categoryBadges.get(count).setText(code);
+            setCategoryClass(count, styles.styleClassOf(bit));
+            count++;
+        }
+
+        // Первым ребёнком всегда идёт номер, дальше ровно count значков
+        int shown = box.getChildren().size() - 1;
+        if (shown > count) {
+            box.getChildren().remove(count + 1, shown + 1);
+        } else {
+            for (int i = shown; i < count; i++) {
+                box.getChildren().add(categoryBadges.get(i));
+            }
+        }
+        setGraphic(box);
+    }
+
+    private void setTypeClass(String newClass) {
+        if (newClass.equals(typeClass)) return;
+        if (typeClass != null) {
+            numberBadge.getStyleClass().remove(typeClass);
+        }
+        numberBadge.getStyleClass().add(newClass);
+        typeClass = newClass;
+    }
+
+    private void setCategoryClass(int index, String newClass) {
+        String current = categoryClasses.get(index);
+        if (newClass == null ? current == null : newClass.equals(current)) return;
+        Label badge = categoryBadges.get(index);
+        if (current != null) {
+            badge.getStyleClass().remove(current);
+        }
+        if (newClass != null) {
+            badge.getStyleClass().add(newClass);
+        }
+        categoryClasses.set(index, newClass);
+    }
+
+    private static String numberText(int number) {
+        if (number < 0 || number >= NUMBER_TEXT.length) {
+            return String.valueOf(number);
+        }
+        String text = NUMBER_TEXT[number];
+        if (text == null) {
+            text = String.valueOf(number);
+            NUMBER_TEXT[number] = text;
+        }
+        return text;
+    }
+}
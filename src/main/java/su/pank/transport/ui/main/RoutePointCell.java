@@ -0,0 +1,37 @@
+package su.pank.transport.ui.main;
+
+import su.pank.transport.data.models.RoutePoint;
+
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
+import javafx.scene.layout.HBox;
+
+/**
+ * Ячейка точки маршрута: описание и серым населённый пункт с районом.
+ * Метки создаются один раз и переиспользуются при прокрутке, строки берутся готовыми из точки
+ */
+class RoutePointCell extends TableCell<RouteUI, RoutePoint> {
+    private final Label descLabel = new Label();
+    private final Label locLabel = new Label();
+    // Отступ вместо пробела в начале строки местоположения
+    private final HBox box = new HBox(4, descLabel, locLabel);
+
+    RoutePointCell() {
+        locLabel.getStyleClass().add("point-location");
+        box.setAlignment(Pos.CENTER);
+        setAlignment(Pos.CENTER);
+    }
+
+    @Override
+    protected void updateItem(RoutePoint item, boolean empty) {
+        super.updateItem(item, empty);
+        if (empty || item == null) {
+            setGraphic(null);
+            return;
+        }
+        descLabel.setText(item.getDescription());
+        locLabel.setText(item.getLocation());
+        setGraphic(box);
+    }
+}
@@ -3,79 +3,81 @@ package su.pank.transport.ui.main;
 import su.pank.transport.data.models.Route;
 import su.pank.transport.data.models.RoutePoint;
 
-import javafx.beans.property.*;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 
 /**
- * Route для взаимодействия в пользовательском интерфейсе
+ * Строка таблицы маршрутов. Хранит только неизменяемый Route; наблюдаемые свойства
+ * создаются при первом обращении, то есть только для строк, которые TableView отрисовал
  */
 public class RouteUI {
-    private final Route route;
-    private final IntegerProperty id;
-    private final IntegerProperty routeNumber;
-    private final ObjectProperty<RoutePoint> startPoint;
-    private final ObjectProperty<RoutePoint> endPoint;
-    private final ObservableList<String> specialCategories;
-    private final StringProperty routeType;
+    private Route route;
+    private ReadOnlyObjectWrapper<Route> routeProperty;
+    private ReadOnlyObjectWrapper<RoutePoint> startPoint;
+    private ReadOnlyObjectWrapper<RoutePoint> endPoint;
+    // Позиция строки после последней сортировки списка маршрутов
+    int sortPosition;
+    // Номер последнего локального изменения строки при отложенной записи
+    int localVersion;
 
     public RouteUI(Route route) {
         this.route = route;
-        this.id = new SimpleIntegerProperty(route.getId());
-        this.routeNumber = new SimpleIntegerProperty(route.getRouteNumber());
-        this.startPoint = new SimpleObjectProperty<>(new RoutePoint(route.getStartPointId(),
-                route.getStartLocality(), route.getStartDistrict(), route.getStartDescription()));
-        this.endPoint = new SimpleObjectProperty<>(new RoutePoint(route.getEndPointId(),
-                route.getEndLocality(), route.getEndDistrict(), route.getEndDescription()));
-        this.specialCategories = FXCollections.observableArrayList(route.getSpecialCategories());
-        this.routeType = new SimpleStringProperty(route.getRouteType());
     }
 
     public Route getRoute() {
         return route;
     }
 
-    public int getId() { return id.get(); }
-    public int getRouteNumber() { return routeNumber.get(); }
-    public void setRouteNumber(int value) {
-        routeNumber.set(value);
-        route.setRouteNumber(value);
-        routeType.set(route.getRouteType());
+    /**
+     * Маршрут целиком: меняется при любом обновлении строки
+     */
+    public ReadOnlyObjectProperty<Route> routeProperty() {
+        if (routeProperty == null) {
+            routeProperty = new ReadOnlyObjectWrapper<>(route);
+        }
+        return routeProperty.getReadOnlyProperty();
     }
-    public IntegerProperty routeNumberProperty() { return routeNumber; }
 
-    public RoutePoint getStartPoint() { return startPoint.get(); }
-    public void setStartPoint(RoutePoint value) {
-        startPoint.set(value);
-        route.setStartPointId(value.getId());
-        route.setStartLocality(value.getLocality());
-        route.setStartDistrict(value.getDistrict());
-        route.setStartDescription(value.getDescription());
+    /**
+     * Обновление строки на месте новым состоянием того же маршрута из базы
+     */
+    public void update(Route saved) {
+        route = saved;
+        if (startPoint != null) {
+            startPoint.set(saved.getStartPoint());
+        }
+        if (endPoint != null) {
+            endPoint.set(saved.getEndPoint());
+        }
+        if (routeProperty != null) {
+            routeProperty.set(saved);
+        }
     }
-    public ObjectProperty<RoutePoint> startPointProperty() { return startPoint; }
 
-    public RoutePoint getEndPoint() { return endPoint.get(); }
-    public void setEndPoint(RoutePoint value) {
-        endPoint.set(value);
-        route.setEndPointId(value.getId());
-        route.setEndLocality(value.getLocality());
-        route.setEndDistrict(value.getDistrict());
-        route.setEndDescription(value.getDescription());
+    public int getId() { return route.getId(); }
+    public int getRouteNumber() { return route.getRouteNumber(); }
+
+    public RoutePoint getStartPoint() {
+        return route.getStartPoint();
+    }
+    public ReadOnlyObjectProperty<RoutePoint> startPointProperty() {
+        if (startPoint == null) {
+            startPoint = new ReadOnlyObjectWrapper<>(route.getStartPoint());
+        }
+        return startPoint.getReadOnlyProperty();
     }
-    public ObjectProperty<RoutePoint> endPointProperty() { return endPoint; }
 
-    public ObservableList<String> getSpecialCategories() { return specialCategories; }
-    public void setSpecialCategories(String[] categories) {
-        specialCategories.clear();
-        specialCategories.addAll(categories);
-        route.setSpecialCategories(categories);
+    public RoutePoint getEndPoint() {
+        return route.getEndPoint();
+    }
+    public ReadOnlyObjectProperty<RoutePoint> endPointProperty() {
+        if (endPoint == null) {
+            endPoint = new ReadOnlyObjectWrapper<>(route.getEndPoint());
+        }
+        return endPoint.getReadOnlyProperty();
     }
 
-    public String getRouteType() { return routeType.get(); }
-    public StringProperty routeTypeProperty() { return routeType; }
+    public int getCategoryMask() { return route.getCategoryMask(); }
 
-    public String getBadgeColor() { return route.getBadgeColor(); }
-    public String getTextColor() { return route.getTextColor(); }
-    public String getCategoryColor(String category) { return route.getCategoryColor(category); }
-    public String getCategoryTextColor(String category) { return route.getCategoryTextColor(category); }
-}
\ No newline at end of file
+    public String getRouteType() { return route.getRouteType(); }
+}
@@ -0,0 +1,58 @@
+package su.pank.transport.ui.progress;
+
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+/**
+ * Окно прогресса фоновой операции с кнопкой отмены
+ */
+public class ProgressView extends Stage {
+    private final ProgressViewModel viewModel;
+
+    public ProgressView(ProgressViewModel viewModel) {
+        this.viewModel = viewModel;
+
+        initModality(Modality.APPLICATION_MODAL);
+        setTitle(viewModel.getTitle());
+
+        Scene scene = new Scene(createContent(), 360, 140);
+        setScene(scene);
+
+        // Закрытие окна крестиком равносильно отмене
+        setOnCloseRequest(e -> {
+            e.consume();
+            cancel();
+        });
+    }
+
+    private VBox createContent() {
+        Label title = new Label(viewModel.getTitle());
+
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(300);
+        progressBar.progressProperty().bind(viewModel.progressProperty());
+
+        Button cancelBtn = new Button("Отмена");
+        cancelBtn.setOnAction(e -> {
+            cancelBtn.setDisable(true);
+            cancel();
+        });
+
+        VBox root = new VBox(10, title, progressBar, cancelBtn);
+        root.setPadding(new Insets(20));
+        root.setAlignment(Pos.CENTER);
+        return root;
+    }
+
+    // Окно закрывает вызывающий, когда операция действительно завершится
+    private void cancel() {
+        viewModel.cancel();
+    }
+}
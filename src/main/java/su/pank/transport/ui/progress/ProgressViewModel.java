@@ -0,0 +1,59 @@
+package su.pank.transport.ui.progress;
+
+import su.pank.transport.data.csv.ProgressMonitor;
+
+import javafx.application.Platform;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.scene.control.ProgressBar;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ViewModel прогресса фоновой операции. Отчёты приходят из фонового потока,
+ * в поток JavaFX передаётся только последнее значение, чтобы не засорять очередь событий
+ */
+public class ProgressViewModel implements ProgressMonitor {
+    private final String title;
+    private final DoubleProperty progress = new SimpleDoubleProperty(ProgressBar.INDETERMINATE_PROGRESS);
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+    private volatile long workDone;
+    private volatile long totalWork;
+    private volatile boolean cancelled;
+
+    public ProgressViewModel(String title) {
+        this.title = title;
+    }
+
+    @Override
+    public void progress(long workDone, long totalWork) {
+        this.workDone = workDone;
+        this.totalWork = totalWork;
+        if (updateScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::publish);
+        }
+    }
+
+    private void publish() {
+        updateScheduled.set(false);
+        long total = totalWork;
+        progress.set(total > 0 ? Math.min(1.0, (double) workDone / total) : ProgressBar.INDETERMINATE_PROGRESS);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public DoubleProperty progressProperty() {
+        return progress;
+    }
+}
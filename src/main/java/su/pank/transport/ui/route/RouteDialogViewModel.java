@@ -5,7 +5,11 @@ import su.pank.transport.data.models.Route;
 import su.pank.transport.data.models.RoutePoint;
 import su.pank.transport.data.repository.RouteRepository;
 import su.pank.transport.data.repository.RoutePointRepository;
-import su.pank.transport.domain.LinkedList;
+import su.pank.transport.domain.RouteChange;
+import su.pank.transport.domain.RouteNumberIndex;
+import su.pank.transport.ui.BackgroundExecutor;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * ViewModel для диалога маршрута
@@ -13,33 +17,58 @@ import su.pank.transport.domain.LinkedList;
 public class RouteDialogViewModel {
     private final RouteRepository routeRepository;
     private final RoutePointRepository routePointRepository;
-
-    public RouteDialogViewModel(RouteRepository routeRepository, RoutePointRepository routePointRepository) {
+    private final RouteNumberIndex routeNumberIndex;
+    private final BackgroundExecutor executor;
+    private final boolean writeBehind;
+    // Пишется в фоновом потоке до завершения future, читается после него
+    private volatile RouteChange change;
+
+    public RouteDialogViewModel(RouteRepository routeRepository, RoutePointRepository routePointRepository,
+                                RouteNumberIndex routeNumberIndex, BackgroundExecutor executor,
+                                boolean writeBehind) {
         this.routeRepository = routeRepository;
         this.routePointRepository = routePointRepository;
+        this.routeNumberIndex = routeNumberIndex;
+        this.executor = executor;
+        this.writeBehind = writeBehind;
     }
 
-    public Category[] getAllCategories() {
-        return routeRepository.getAllCategories();
+    public CompletableFuture<Category[]> loadCategories() {
+        return executor.supply(routeRepository::getAllCategories);
     }
 
-    public RoutePoint[] getAllRoutePoints() {
-        return routePointRepository.getAllRoutePoints();
+    public CompletableFuture<RoutePoint[]> loadRoutePoints() {
+        return executor.supply(routePointRepository::getAllRoutePoints);
     }
 
-    public boolean addRoute(Route route) {
+    public Route addRoute(Route route) {
         return routeRepository.addRoute(route);
     }
 
-    public boolean updateRoute(Route route) {
+    public Route updateRoute(Route route) {
         return routeRepository.updateRoute(route);
     }
 
-    // Валидация Route
-    public String validateAndSaveRoute(String numText, RoutePoint start, RoutePoint end, String[] selectedCategories, Route existingRoute) {
+    /**
+     * @return изменение после успешного сохранения, null если ничего не сохранено.
+     * При отложенной записи - проверенное, но ещё не записанное изменение
+     */
+    public RouteChange getChange() {
+        return change;
+    }
+
+    /**
+     * @return true - диалог не пишет в базу, изменение ставит в очередь записи главное окно
+     */
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    // Валидация Route сразу, сохранение - в фоне
+    public CompletableFuture<String> validateAndSaveRoute(String numText, RoutePoint start, RoutePoint end, int categoryMask, Route existingRoute) {
         // Проверка на пустое поле ID
         if (numText == null || numText.trim().isEmpty()) {
-            return "Номер маршрута не может быть пустым.";
+            return CompletableFuture.completedFuture("Номер маршрута не может быть пустым.");
         }
 
         // Проверка на корректность числа
@@ -47,49 +76,62 @@ public class RouteDialogViewModel {
         try {
             routeNum = Integer.parseInt(numText.trim());
         } catch (NumberFormatException e) {
-            return "Номер маршрута должен быть числом от 1 до 999.";
+            return CompletableFuture.completedFuture("Номер маршрута должен быть числом от 1 до 999.");
         }
 
         // Проверка диапазона
         if (routeNum < 1 || routeNum > 999) {
-            return "Номер маршрута должен быть числом от 1 до 999.";
+            return CompletableFuture.completedFuture("Номер маршрута должен быть числом от 1 до 999.");
         }
 
         // Проверка выбора пунктов
         if (start == null || end == null) {
-            return "Необходимо выбрать начальный и конечный пункты.";
+            return CompletableFuture.completedFuture("Необходимо выбрать начальный и конечный пункты.");
         }
 
         // Проверка на дублирующийся ID (только для новых маршрутов)
         if (existingRoute == null && isRouteNumberExists(routeNum)) {
-            return "Маршрут с таким номером уже существует.";
+            return CompletableFuture.completedFuture("Маршрут с таким номером уже существует.");
         }
 
         // Проверка на дублирующийся ID при редактировании (если номер изменился)
         if (existingRoute != null && existingRoute.getRouteNumber() != routeNum && isRouteNumberExists(routeNum)) {
-            return "Маршрут с таким номером уже существует.";
+            return CompletableFuture.completedFuture("Маршрут с таким номером уже существует.");
         }
 
         Route route = new Route(existingRoute != null ? existingRoute.getId() : 0, routeNum,
-                start.getId(), start.getLocality(), start.getDistrict(), start.getDescription(),
-                end.getId(), end.getLocality(), end.getDistrict(), end.getDescription(),
-                String.join(",", selectedCategories));
-
-        boolean success;
-        if (existingRoute == null) {
-            success = addRoute(route);
-        } else {
-            success = updateRoute(route);
-        }
+                start, end, categoryMask);
 
-        if (success) {
-            return null; // null означает успех
-        } else {
-            return "Не удалось сохранить маршрут. Попробуйте еще раз.";
+        if (writeBehind) {
+            change = existingRoute == null ? RouteChange.insert(route) : RouteChange.replace(route);
+            return CompletableFuture.completedFuture(null);
         }
+
+        return executor.supply(() -> {
+            Route saved;
+            if (existingRoute == null) {
+                saved = addRoute(route);
+            } else {
+                saved = updateRoute(route);
+            }
+
+            if (saved != null) {
+                change = existingRoute == null ? RouteChange.insert(saved) : RouteChange.replace(saved);
+                return null; // null означает успех
+            } else {
+                return "Не удалось сохранить маршрут. Попробуйте еще раз.";
+            }
+        });
+    }
+
+    /**
+     * @return наименьший свободный номер маршрута, -1 если свободных нет
+     */
+    public int suggestRouteNumber() {
+        return routeNumberIndex.nextFreeNumber();
     }
 
     private boolean isRouteNumberExists(int routeNumber) {
-        return routeRepository.isRouteNumberExists(routeNumber);
+        return routeNumberIndex.contains(routeNumber);
     }
 }
\ No newline at end of file
@@ -3,8 +3,7 @@ package su.pank.transport.ui.route;
 import su.pank.transport.data.models.Category;
 import su.pank.transport.data.models.Route;
 import su.pank.transport.data.models.RoutePoint;
-import su.pank.transport.domain.LinkedList;
-import su.pank.transport.domain.SimpleLinkedList;
+import su.pank.transport.ui.BackgroundExecutor;
 
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -16,6 +15,8 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 
+import java.util.concurrent.CompletableFuture;
+
 
 /**
  * View для добавления или редактирования маршрута
@@ -23,6 +24,9 @@ import javafx.stage.Stage;
 public class RouteView extends Stage {
     private final RouteDialogViewModel viewModel;
     private final Route existingRoute;
+    // Заполняются после фоновой загрузки справочников
+    private Category[] allCategories = new Category[0];
+    private CheckBox[] checkBoxes = new CheckBox[0];
 
     public RouteView(RouteDialogViewModel viewModel, Route existingRoute) {
         this.viewModel = viewModel;
@@ -49,42 +53,41 @@ public class RouteView extends Stage {
         numField.setStyle("-fx-background-color: #CCE8EA; -fx-background-radius: 6;");
         if (existingRoute != null) {
             numField.setText(String.valueOf(existingRoute.getRouteNumber()));
+        } else {
+            int freeNumber = viewModel.suggestRouteNumber();
+            if (freeNumber > 0) {
+                numField.setPromptText("1-999, свободен " + freeNumber);
+            }
         }
 
         Label catLabel = new Label("Категории");
         VBox catBox = new VBox(5);
-        Category[] allCategories = viewModel.getAllCategories();
-        CheckBox[] checkBoxes = new CheckBox[allCategories.length];
-        for (int i = 0; i < allCategories.length; i++) {
-            checkBoxes[i] = new CheckBox(allCategories[i].getCode() + " - " + allCategories[i].getName());
-            catBox.getChildren().add(checkBoxes[i]);
-        }
-        if (existingRoute != null) {
-            for (String catCode : existingRoute.getSpecialCategories()) {
-                for (int j = 0; j < allCategories.length; j++) {
-                    if (allCategories[j].getCode().equals(catCode)) {
-                        checkBoxes[j].setSelected(true);
-                        break;
-                    }
-                }
+        CompletableFuture<Void> categoriesReady = viewModel.loadCategories()
+                .thenAcceptAsync(categories -> fillCategories(catBox, categories), BackgroundExecutor.FX_THREAD);
+        categoriesReady.whenCompleteAsync((v, error) -> {
+            if (error != null) {
+                showAlert("Ошибка", "Не удалось загрузить категории: " + BackgroundExecutor.unwrap(error).getMessage());
             }
-        }
-
-        RoutePoint[] depots = viewModel.getAllRoutePoints();
+        }, BackgroundExecutor.FX_THREAD);
 
         ComboBox<RoutePoint> startCombo = new ComboBox<>();
-        startCombo.getItems().addAll(depots);
         startCombo.setStyle("-fx-background-color: #CCE8EA; -fx-background-radius: 6; -fx-pref-width: 280;");
 
         ComboBox<RoutePoint> endCombo = new ComboBox<>();
-        endCombo.getItems().addAll(depots);
         endCombo.setStyle("-fx-background-color: #CCE8EA; -fx-background-radius: 6; -fx-pref-width: 280;");
 
+        viewModel.loadRoutePoints().whenCompleteAsync((depots, error) -> {
+            if (error != null) {
+                showAlert("Ошибка", "Не удалось загрузить депо: " + BackgroundExecutor.unwrap(error).getMessage());
+                return;
+            }
+            startCombo.getItems().addAll(depots);
+            endCombo.getItems().addAll(depots);
+        }, BackgroundExecutor.FX_THREAD);
+
         if (existingRoute != null) {
-            startCombo.setValue(new RoutePoint(existingRoute.getStartPointId(),
-                    existingRoute.getStartLocality(), existingRoute.getStartDistrict(), existingRoute.getStartDescription()));
-            endCombo.setValue(new RoutePoint(existingRoute.getEndPointId(),
-                    existingRoute.getEndLocality(), existingRoute.getEndDistrict(), existingRoute.getEndDescription()));
+            startCombo.setValue(existingRoute.getStartPoint());
+            endCombo.setValue(existingRoute.getEndPoint());
         }
 
         int row = 0;
@@ -105,25 +108,34 @@ public class RouteView extends Stage {
         Button saveBtn = new Button(existingRoute == null ? "Добавить" : "Сохранить");
         Button cancelBtn = new Button("Отмена");
 
+        // Без загруженных категорий сохранение сбросило бы категории маршрута
+        saveBtn.setDisable(true);
+        categoriesReady.thenRunAsync(() -> saveBtn.setDisable(false), BackgroundExecutor.FX_THREAD);
+
         saveBtn.setOnAction(e -> {
             RoutePoint start = startCombo.getValue();
             RoutePoint end = endCombo.getValue();
 
-            String[] selectedCategories = new String[allCategories.length];
-            int selectedCount = 0;
+            // Биты категорий, которых нет в справочнике, остаются как были
+            int categoryMask = existingRoute != null ? existingRoute.getCategoryMask() : 0;
             for (int i = 0; i < checkBoxes.length; i++) {
-                if (checkBoxes[i].isSelected()) {
-                    selectedCategories[selectedCount++] = allCategories[i].getCode();
-                }
+                int bit = allCategories[i].getMask();
+                categoryMask = checkBoxes[i].isSelected() ? categoryMask | bit : categoryMask & ~bit;
             }
-            String[] finalSelected = java.util.Arrays.copyOf(selectedCategories, selectedCount);
 
-            String errorMsg = viewModel.validateAndSaveRoute(numField.getText(), start, end, finalSelected, existingRoute);
-            if (errorMsg == null) {
-                close();
-            } else {
-                showAlert("Ошибка", errorMsg);
-            }
+            saveBtn.setDisable(true);
+            viewModel.validateAndSaveRoute(numField.getText(), start, end, categoryMask, existingRoute)
+                    .whenCompleteAsync((errorMsg, error) -> {
+                        saveBtn.setDisable(false);
+                        if (error != null) {
+                            showAlert("Ошибка", "Не удалось сохранить маршрут: "
+                                    + BackgroundExecutor.unwrap(error).getMessage());
+                        } else if (errorMsg == null) {
+                            close();
+                        } else {
+                            showAlert("Ошибка", errorMsg);
+                        }
+                    }, BackgroundExecutor.FX_THREAD);
         });
 
         cancelBtn.setOnAction(e -> close());
@@ -135,6 +147,20 @@ public class RouteView extends Stage {
         return grid;
     }
 
+    private void fillCategories(VBox catBox, Category[] categories) {
+        allCategories = categories;
+        checkBoxes = new CheckBox[categories.length];
+        for (int i = 0; i < categories.length; i++) {
+            checkBoxes[i] = new CheckBox(categories[i].getCode() + " - " + categories[i].getName());
+            catBox.getChildren().add(checkBoxes[i]);
+        }
+        if (existingRoute != null) {
+            for (int i = 0; i < categories.length; i++) {
+                checkBoxes[i].setSelected(existingRoute.hasCategories(categories[i].getMask()));
+            }
+        }
+    }
+
     private void showAlert(String title, String content) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle(title);
@@ -0,0 +1,230 @@
+package su.pank.transport.data;
+
+import su.pank.transport.data.csv.RouteCsvExporter;
+import su.pank.transport.data.csv.RouteCsvImporter;
+import su.pank.transport.data.migration.SchemaMigrator;
+import su.pank.transport.data.models.Route;
+import su.pank.transport.data.models.RoutePoint;
+import su.pank.transport.data.repository.CategoryRepository;
+import su.pank.transport.data.repository.DepotRegistry;
+import su.pank.transport.data.repository.RoutePointRepository;
+import su.pank.transport.data.repository.RouteRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Проверка планов запросов (gradle verifyQueryPlans). На временной базе с большим числом точек
+ * вызываются методы репозиториев и CSV, затем для каждого запроса из кэшей соединений и для
+ * каждого оператора внутри триггеров выполняется EXPLAIN QUERY PLAN.
+ * Полный проход по таблице допускается только для запросов из ALLOWED_SCANS
+ */
+public final class QueryPlanCheck {
+    private static final int ROUTE_POINTS = 50_000;
+    private static final int ROUTES = 999;
+
+    // Запросы, которым по смыслу нужна вся таблица
+    private static final Map<String, String> ALLOWED_SCANS = new LinkedHashMap<>();
+
+    static {
+        allowScan("SELECT * FROM route_summary", "полная загрузка каталога");
+        allowScan("SELECT * FROM route_summary WHERE category_mask & ? = ?",
+                "фильтр по маске проверяет каждый маршрут");
+        allowScan("SELECT COUNT(*) FROM route_summary", "размер экспорта");
+        allowScan("""
+                SELECT route_id, route_number,
+                       start_locality, start_district, start_description,
+                       end_locality, end_district, end_description,
+                       category_mask
+                FROM route_summary
+                """, "экспорт всех маршрутов");
+        allowScan("SELECT route_number FROM routes", "занятые номера перед импортом");
+        allowScan("SELECT COUNT(*) FROM route_points", "загрузка списка депо");
+        allowScan("SELECT id, locality, district, description FROM route_points", "загрузка списка депо");
+        allowScan("SELECT COUNT(*) FROM categories", "словарь категорий");
+        allowScan("SELECT code, name, bg_color, text_color, bit FROM categories", "словарь категорий");
+    }
+
+    private static final Pattern FULL_SCAN = Pattern.compile("^SCAN (?:TABLE )?(\\w+)(.*)$");
+    private static final Pattern TRIGGER_ROW = Pattern.compile("\\b(?:NEW|OLD)\\.\\w+", Pattern.CASE_INSENSITIVE);
+
+    private QueryPlanCheck() {
+    }
+
+    private static void allowScan(String sql, String reason) {
+        ALLOWED_SCANS.put(normalize(sql), reason);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("query-plans");
+        Path db = dir.resolve("plans.db");
+        // Одно соединение с большим кэшем: после прогона в кэше лежат все запросы приложения
+        DatabaseConfig config = new DatabaseConfig("jdbc:sqlite:" + db, 1, 256, "WAL");
+        List<String> failures = new ArrayList<>();
+        int checked;
+        try (ConnectionProvider provider = new ConnectionProvider(config)) {
+            new SchemaMigrator(provider).migrate();
+            populate(provider);
+            exercise(provider, dir);
+            checked = checkStatements(provider, failures);
+        } finally {
+            deleteRecursively(dir);
+        }
+
+        if (!failures.isEmpty()) {
+            System.err.println("Полный проход по таблице в " + failures.size() + " запросах:");
+            failures.forEach(System.err::println);
+            System.exit(1);
+        }
+        System.out.println("Планы запросов в порядке: проверено " + checked + " запросов");
+    }
+
+    private static void populate(ConnectionProvider provider) throws SQLException {
+        try (PooledConnection conn = provider.acquire()) {
+            Connection connection = conn.getConnection();
+            connection.setAutoCommit(false);
+            try (PreparedStatement points = connection.prepareStatement(
+                         "INSERT INTO route_points (locality, district, description) VALUES (?, ?, ?)");
+                 PreparedStatement routes = connection.prepareStatement(
+                         "INSERT INTO routes (route_number, start_point_id, end_point_id, category_mask) VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < ROUTE_POINTS; i++) {
+                    points.setString(1, "Город " + (i % 100));
+                    points.setString(2, "Район " + (i % 1000));
+                    points.setString(3, "Депо " + i);
+                    points.addBatch();
+                }
+                points.executeBatch();
+
+                Random random = new Random(17);
+                for (int number = 1; number <= ROUTES; number++) {
+                    routes.setInt(1, number);
+                    routes.setInt(2, 1 + random.nextInt(ROUTE_POINTS));
+                    routes.setInt(3, 1 + random.nextInt(ROUTE_POINTS));
+                    routes.setInt(4, random.nextInt(8));
+                    routes.addBatch();
+                }
+                routes.executeBatch();
+                connection.commit();
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Вызов каждого метода, который обращается к базе, чтобы его запросы попали в кэш
+    private static void exercise(ConnectionProvider provider, Path dir) throws SQLException, IOException {
+        DepotRegistry registry = new DepotRegistry();
+        CategoryRepository categories = new CategoryRepository(provider);
+        RoutePointRepository points = new RoutePointRepository(provider, registry);
+        RouteRepository routes = new RouteRepository(provider, categories, registry);
+
+        categories.getAllCategories();
+        RoutePoint[] allPoints = points.getAllRoutePoints();
+        points.exists(allPoints[allPoints.length / 2]);
+        points.isInUse(allPoints[0].getId());
+        RoutePoint added = points.addRoutePoint(new RoutePoint(0, "Проверка", "Проверка", "Новое депо"));
+        points.deleteRoutePoint(added.getId());
+
+        routes.getAllRoutes();
+        Route[] page = routes.getRoutesPage(0, 0, 100);
+        routes.getRoutesPage(page[page.length - 1].getRouteNumber(), page[page.length - 1].getId(), 100);
+        Route first = page[0];
+        routes.isRouteNumberExists(first.getRouteNumber());
+        routes.deleteRoute(first.getId());
+        Route saved = routes.addRoute(new Route(0, first.getRouteNumber(), first.getStartPoint(),
+                first.getEndPoint(), first.getCategoryMask()));
+        routes.updateRoute(new Route(saved.getId(), saved.getRouteNumber(), saved.getEndPoint(),
+                saved.getStartPoint(), saved.getCategoryMask()));
+        routes.updateRouteCategories(saved.getId(), 1);
+        routes.getRoutesWithCategories(3);
+
+        File csv = dir.resolve("routes.csv").toFile();
+        new RouteCsvExporter(provider, categories).exportFile(csv);
+        new RouteCsvImporter(provider, categories, points).importFile(csv);
+    }
+
+    private static int checkStatements(ConnectionProvider provider, List<String> failures) throws SQLException {
+        Set<String> statements = provider.preparedSql();
+        int checked = 0;
+        try (PooledConnection conn = provider.acquire();
+             Statement stmt = conn.createStatement()) {
+            List<String> triggerStatements = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery("SELECT name, sql FROM sqlite_master WHERE type = 'trigger'")) {
+                while (rs.next()) {
+                    triggerStatements.addAll(triggerBody(rs.getString(2)));
+                }
+            }
+            statements.addAll(triggerStatements);
+
+            for (String sql : statements) {
+                String scans = fullScans(conn.getConnection(), sql);
+                checked++;
+                if (scans.isEmpty() || ALLOWED_SCANS.containsKey(normalize(sql))) continue;
+                failures.add("  " + normalize(sql) + "\n    " + scans);
+            }
+        }
+        return checked;
+    }
+
+    // Операторы между BEGIN и END, ссылки на NEW/OLD заменены параметрами
+    private static List<String> triggerBody(String triggerSql) {
+        List<String> result = new ArrayList<>();
+        String upper = triggerSql.toUpperCase();
+        int begin = upper.indexOf("BEGIN") + "BEGIN".length();
+        int end = upper.lastIndexOf("END");
+        for (String statement : triggerSql.substring(begin, end).split(";")) {
+            if (!statement.isBlank()) {
+                result.add(TRIGGER_ROW.matcher(statement).replaceAll("?").trim());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return строки плана с полным проходом по таблице, пустая строка если их нет
+     */
+    private static String fullScans(Connection connection, String sql) throws SQLException {
+        StringBuilder scans = new StringBuilder();
+        // Параметры не привязываются: для плана они считаются NULL
+        try (PreparedStatement pstmt = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                String detail = rs.getString("detail");
+                Matcher matcher = FULL_SCAN.matcher(detail);
+                if (matcher.matches() && !detail.startsWith("SCAN CONSTANT ROW")) {
+                    if (scans.length() > 0) scans.append("; ");
+                    scans.append(detail);
+                }
+            }
+        }
+        return scans.toString();
+    }
+
+    private static String normalize(String sql) {
+        return sql.trim().replaceAll("\\s+", " ");
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}